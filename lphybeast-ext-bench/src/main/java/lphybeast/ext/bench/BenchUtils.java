@@ -0,0 +1,80 @@
+package lphybeast.ext.bench;
+
+import beast.base.parser.XMLParser;
+import beast.base.util.Randomizer;
+import beast.pkgmgmt.PackageManager;
+import lphy.core.simulator.RandomUtils;
+import lphybeast.LPhyBeast;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Load LPhyBEAST and the extensions once per JVM from the installed BEAST packages,
+ * the same way as BatchLPhyBEAST does, and convert LPhy scripts from a fixed seed.
+ * Use -Dbeast.user.package.dir=... to point to another package folder.
+ */
+public final class BenchUtils {
+
+    /**
+     * the seed to simulate LPhy scripts, so that every trial converts the same data
+     */
+    public static final long SEED = 777;
+
+    private static boolean loaded = false;
+
+    private BenchUtils() { }
+
+    /**
+     * Load the installed BEAST packages, including LPhyBEAST, the extensions
+     * and the BEAST packages they require.
+     */
+    public static synchronized void loadServices() throws IOException {
+        if (loaded)
+            return;
+        PackageManager.loadExternalJars();
+        loaded = true;
+    }
+
+    /**
+     * Simulate the LPhy script from the seed and convert it into BEAST XML.
+     * @param script    LPhy script
+     * @param fileStem  the file stem of logs inside XML
+     * @param seed      the random seed
+     * @return BEAST XML
+     */
+    public static String toBEASTXML(String script, String fileStem, long seed) throws IOException {
+        RandomUtils.setSeed(seed);
+        return new LPhyBeast().lphyStrToXML(script, fileStem);
+    }
+
+    /**
+     * Convert the LPhy script into BEAST XML, and run the MCMC in this JVM.
+     * Both LPhy simulation and MCMC start from the given seed,
+     * so that the runs only differ by the options given in system properties.
+     * @param script       LPhy script
+     * @param fileStem     the file stem of XML and logs
+     * @param chainLength  the chain length, where about 10000 samples are logged
+     * @param seed         the random seed
+     * @param dir          the folder to write XML and logs
+     * @return the path of the trace log
+     */
+    public static Path runMCMC(String script, String fileStem, long chainLength, long seed, Path dir) throws Exception {
+        // simulate the same data for every run
+        String xml = toBEASTXML(script, fileStem, seed);
+        long logEvery = Math.max(1, chainLength / 10000);
+        xml = xml.replaceFirst("chainLength=\"\\d+\"", "chainLength=\"" + chainLength + "\"")
+                .replaceAll("logEvery=\"\\d+\"", "logEvery=\"" + logEvery + "\"");
+        Path xmlFile = dir.resolve(fileStem + ".xml");
+        Files.writeString(xmlFile, xml);
+
+        // write logs into dir
+        System.setProperty("file.name.prefix", dir.toString());
+        Randomizer.setSeed(seed);
+        Runnable mcmc = new XMLParser().parseFile(xmlFile.toFile());
+        mcmc.run();
+        return dir.resolve(fileStem + ".log");
+    }
+
+}
@@ -0,0 +1,67 @@
+package lphybeast.ext.bench;
+
+import lphy.base.evolution.substitutionmodel.LewisMK;
+import lphy.core.model.Value;
+import lphybeast.BEASTContext;
+import mm.lphybeast.tobeast.generators.LewisMKToBeast;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The conversion of the morphological model by {@link LewisMKToBeast#generatorToBEAST},
+ * when the partitions with the same number of states share one LewisMK or not.
+ * The script is simulated once per trial, and each iteration starts from a fresh context,
+ * so the shared LewisMK is created once per iteration and looked up afterwards.
+ * Use "-prof gc" to get the allocation rate.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class MMConversionBenchmark {
+
+    private static final String LEWIS_MK = """
+            Θ ~ LogNormal(meanlog=3.0, sdlog=1.0);
+            ψ ~ Coalescent(n=16, theta=Θ);
+            Q = lewisMK(numStates=%1$s);
+            D ~ PhyloCTMC(L=20, Q=Q, tree=ψ, dataType=standard(%1$s));""";
+
+    @Param({"2", "5", "10"})
+    public int nstates;
+
+    @Param({"true", "false"})
+    public boolean share;
+
+    private final LewisMKToBeast converter = new LewisMKToBeast();
+    private PreparedModel model;
+    private Value<?> q;
+    private BEASTContext context;
+
+    @Setup(Level.Trial)
+    public void simulate() throws IOException {
+        BenchUtils.loadServices();
+        System.setProperty(LewisMKToBeast.SHARE_LEWIS_MK, Boolean.toString(share));
+        model = PreparedModel.simulate(String.format(LEWIS_MK, nstates), "lewisMKBench", BenchUtils.SEED);
+        q = model.getGeneratedValue(LewisMK.class);
+    }
+
+    @Setup(Level.Iteration)
+    public void prepareContext() {
+        context = model.newContext();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        System.clearProperty(LewisMKToBeast.SHARE_LEWIS_MK);
+    }
+
+    @Benchmark
+    public morphmodels.evolution.substitutionmodel.LewisMK lewisMKToBeast() {
+        return converter.generatorToBEAST((LewisMK) q.getGenerator(), model.getBEASTObject(q), context);
+    }
+
+}
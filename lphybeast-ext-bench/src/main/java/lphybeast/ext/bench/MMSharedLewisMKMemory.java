@@ -0,0 +1,69 @@
+package lphybeast.ext.bench;
+
+import beast.base.parser.XMLParser;
+import mm.lphybeast.tobeast.generators.LewisMKToBeast;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Measure the heap retained by BEAST objects parsed from a morphology XML with many partitions,
+ * when the partitions with the same number of states share one LewisMK or not,
+ * see {@link LewisMKToBeast}. The partitions cycle through 2 to 5 states.
+ * It is a plain runner rather than JMH, because it measures the retained heap, not the allocation rate:
+ * <pre>
+ * java -cp target/benchmarks.jar lphybeast.ext.bench.MMSharedLewisMKMemory [npartitions] [ntaxa] [nchar]
+ * </pre>
+ */
+public class MMSharedLewisMKMemory {
+
+    public static void main(String[] args) throws Exception {
+        int nPartitions = args.length > 0 ? Integer.parseInt(args[0]) : 50;
+        int ntaxa = args.length > 1 ? Integer.parseInt(args[1]) : 50;
+        int nchar = args.length > 2 ? Integer.parseInt(args[2]) : 20;
+
+        BenchUtils.loadServices();
+        Path dir = Files.createTempDirectory("mmSharedLewisMK");
+        String script = createScript(nPartitions, ntaxa, nchar);
+
+        for (boolean share : new boolean[]{false, true}) {
+            System.setProperty(LewisMKToBeast.SHARE_LEWIS_MK, Boolean.toString(share));
+            String fileStem = "lewisMK_" + (share ? "shared" : "unshared");
+            String xml = BenchUtils.toBEASTXML(script, fileStem, BenchUtils.SEED);
+            Path xmlFile = dir.resolve(fileStem + ".xml");
+            Files.writeString(xmlFile, xml);
+
+            long before = usedHeap();
+            // keep the reference, so that the objects are retained while measuring
+            Runnable mcmc = new XMLParser().parseFile(xmlFile.toFile());
+            long retained = usedHeap() - before;
+            int nLewisMK = xml.split("spec=\"morphmodels.evolution.substitutionmodel.LewisMK\"", -1).length - 1;
+            System.out.printf("%-8s  LewisMK = %-4d  retained heap = %.2f MB  (%s)%n", share ? "shared" : "unshared",
+                    nLewisMK, retained / 1048576.0, mcmc.getClass().getSimpleName());
+        }
+        System.out.println(nPartitions + " partitions, " + ntaxa + " taxa, " + nchar + " characters each, XML in " + dir);
+    }
+
+    private static String createScript(int nPartitions, int ntaxa, int nchar) {
+        StringBuilder script = new StringBuilder();
+        script.append("Θ ~ LogNormal(meanlog=3.0, sdlog=1.0);\n");
+        script.append("ψ ~ Coalescent(n=").append(ntaxa).append(", theta=Θ);\n");
+        for (int i = 0; i < nPartitions; i++) {
+            int nStates = 2 + i % 4;
+            script.append("Q").append(i).append(" = lewisMK(numStates=").append(nStates).append(");\n");
+            script.append("D").append(i).append(" ~ PhyloCTMC(L=").append(nchar).append(", Q=Q").append(i)
+                    .append(", tree=ψ, dataType=standard(").append(nStates).append("));\n");
+        }
+        return script.toString();
+    }
+
+    private static long usedHeap() throws InterruptedException {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+            Thread.sleep(100);
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+}
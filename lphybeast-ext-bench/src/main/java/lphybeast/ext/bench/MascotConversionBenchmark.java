@@ -0,0 +1,76 @@
+package lphybeast.ext.bench;
+
+import lphy.base.evolution.coalescent.StructuredCoalescent;
+import lphy.core.model.Value;
+import lphybeast.BEASTContext;
+import mascot.lphybeast.tobeast.generators.StructuredCoalescentToMascot;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The conversion of a simulated structured coalescent by
+ * {@link StructuredCoalescentToMascot#generatorToBEAST}, which grows with the number of demes.
+ * The script is simulated once per trial, and every call is measured on a fresh context,
+ * so that the deme TraitSet is not shared from the previous call.
+ * Use "-prof gc" to get the allocation rate.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 50)
+@Measurement(iterations = 200)
+@Fork(1)
+public class MascotConversionBenchmark {
+
+    private static final String SCRIPT = """
+            data {
+              S = %1$s;
+              dim = S*(S-1);
+            }
+            model {
+              Θ ~ LogNormal(meanlog=0.0, sdlog=1.0, replicates=S);
+              m ~ Exp(mean=1.0, replicates=dim);
+              M = migrationMatrix(theta=Θ, m=m);
+              ψ ~ StructuredCoalescent(M=M, n=rep(element=%2$s, times=S), sort=true);
+              D ~ PhyloCTMC(L=%3$s, Q=jukesCantor(), tree=ψ);
+            }""";
+
+    /**
+     * the total number of taxa, which are evenly assigned to demes
+     */
+    @Param({"50", "500"})
+    public int ntaxa;
+
+    @Param({"3", "10", "50"})
+    public int ndemes;
+
+    @Param({"200"})
+    public int nchar;
+
+    private final StructuredCoalescentToMascot converter = new StructuredCoalescentToMascot();
+    private PreparedModel model;
+    private Value<?> tree;
+    private BEASTContext context;
+
+    @Setup(Level.Trial)
+    public void simulate() throws IOException {
+        BenchUtils.loadServices();
+        int nPerDeme = Math.max(1, ntaxa / ndemes);
+        model = PreparedModel.simulate(String.format(SCRIPT, ndemes, nPerDeme, nchar), "mascotBench", BenchUtils.SEED);
+        tree = model.getGeneratedValue(StructuredCoalescent.class);
+    }
+
+    @Setup(Level.Iteration)
+    public void prepareContext() {
+        context = model.newContext();
+    }
+
+    @Benchmark
+    public mascot.distribution.Mascot structuredCoalescentToMascot() {
+        return converter.generatorToBEAST((StructuredCoalescent) tree.getGenerator(),
+                model.getBEASTObject(tree), context);
+    }
+
+}
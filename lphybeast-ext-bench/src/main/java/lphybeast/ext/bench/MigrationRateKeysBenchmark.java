@@ -0,0 +1,59 @@
+package lphybeast.ext.bench;
+
+import mascot.lphybeast.tobeast.generators.MigrationRateKeys;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compare the previous string concatenation in the double loop with
+ * {@link MigrationRateKeys}, with or without its cache.
+ * Use "-prof gc" to compare the allocation.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MigrationRateKeysBenchmark {
+
+    @Param({"50", "200"})
+    public int ndemes;
+
+    private List<String> uniqueDemes;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        uniqueDemes = new ArrayList<>(ndemes);
+        for (int i = 0; i < ndemes; i++)
+            uniqueDemes.add("Location" + i);
+    }
+
+    @Benchmark
+    public String concatenation() {
+        String migRatesStr = "";
+        for(int i = 0; i < uniqueDemes.size(); i++) {
+            for(int j = 0; j < uniqueDemes.size(); j++) {
+                if (i != j) {
+                    if (migRatesStr.length() > 1) migRatesStr += " ";
+                    migRatesStr += uniqueDemes.get(i) + "_" + uniqueDemes.get(j);
+                }
+            }
+        }
+        return migRatesStr;
+    }
+
+    @Benchmark
+    public String keyBuilder() {
+        return MigrationRateKeys.createMigrationRateKeys(uniqueDemes, false);
+    }
+
+    @Benchmark
+    public String cachedKeyBuilder() {
+        return MigrationRateKeys.getMigrationRateKeys(uniqueDemes, false);
+    }
+
+}
@@ -0,0 +1,106 @@
+package lphybeast.ext.bench;
+
+import beast.base.core.BEASTInterface;
+import lphy.core.model.Generator;
+import lphy.core.model.GraphicalModelNode;
+import lphy.core.model.Value;
+import lphy.core.parser.REPLParser;
+import lphy.core.simulator.RandomUtils;
+import lphybeast.BEASTContext;
+import lphybeast.spi.LPhyBEASTLoader;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * An LPhy script simulated once from a fixed seed and converted by LPhyBEAST,
+ * so that the benchmarks only repeat the converters of the extensions.
+ * {@link #newContext()} gives a {@link BEASTContext} holding the BEAST objects of the LPhy values,
+ * but none of the per-context caches of the converters, e.g. the shared deme TraitSet,
+ * LewisMK or the SA origin, so every call goes through the same path as the first conversion.
+ */
+public final class PreparedModel {
+
+    private final REPLParser parser;
+    private final String fileStem;
+    // LPhy value -> BEAST object
+    private final Map<Value<?>, BEASTInterface> beastValues;
+
+    private PreparedModel(REPLParser parser, String fileStem, Map<Value<?>, BEASTInterface> beastValues) {
+        this.parser = parser;
+        this.fileStem = fileStem;
+        this.beastValues = beastValues;
+    }
+
+    /**
+     * Simulate the script and convert it into BEAST objects once, which is not measured.
+     * @param script    LPhy script
+     * @param fileStem  the file stem of logs in the converted model
+     * @param seed      the random seed, so that every trial simulates the same data
+     */
+    public static PreparedModel simulate(String script, String fileStem, long seed) throws IOException {
+        RandomUtils.setSeed(seed);
+        REPLParser parser = new REPLParser();
+        parser.source(new BufferedReader(new StringReader(script)));
+
+        BEASTContext context = new BEASTContext(parser, LPhyBEASTLoader.getInstance(), fileStem);
+        context.toBEASTXML(fileStem, 1000000, 0);
+
+        Map<Value<?>, BEASTInterface> beastValues = new IdentityHashMap<>();
+        for (GraphicalModelNode<?> node : context.getBEASTToLPHYMap().values()) {
+            if (node instanceof Value<?> value && !beastValues.containsKey(value)) {
+                BEASTInterface beastValue = context.getBEASTObject(value);
+                if (beastValue != null)
+                    beastValues.put(value, beastValue);
+            }
+        }
+        return new PreparedModel(parser, fileStem, beastValues);
+    }
+
+    /**
+     * @return a context holding the BEAST objects of the LPhy values only.
+     */
+    public BEASTContext newContext() {
+        BEASTContext context = new BEASTContext(parser, LPhyBEASTLoader.getInstance(), fileStem);
+        beastValues.forEach(context::putBEASTObject);
+        return context;
+    }
+
+    /**
+     * @param generatorClass  the class of the generator, e.g. StructuredCoalescent
+     * @return the first LPhy value generated by the given class.
+     */
+    public Value<?> getGeneratedValue(Class<? extends Generator> generatorClass) {
+        return getGeneratedValues(generatorClass).get(0);
+    }
+
+    /**
+     * @param generatorClass  the class of the generator, e.g. SimFBDAge
+     * @return all LPhy values generated by the given class, sorted by their ids.
+     */
+    public List<Value<?>> getGeneratedValues(Class<? extends Generator> generatorClass) {
+        List<Value<?>> values = new ArrayList<>();
+        for (Value<?> value : beastValues.keySet()) {
+            if (generatorClass.isInstance(value.getGenerator()))
+                values.add(value);
+        }
+        if (values.isEmpty())
+            throw new IllegalArgumentException("No value is generated by " + generatorClass.getSimpleName() + " !");
+        values.sort(Comparator.comparing(Value::getId));
+        return values;
+    }
+
+    /**
+     * @return the BEAST object converted from the LPhy value.
+     */
+    public BEASTInterface getBEASTObject(Value<?> value) {
+        return beastValues.get(value);
+    }
+
+}
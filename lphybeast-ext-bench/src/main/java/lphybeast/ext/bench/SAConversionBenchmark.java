@@ -0,0 +1,71 @@
+package lphybeast.ext.bench;
+
+import beast.base.core.BEASTInterface;
+import lphy.base.evolution.birthdeath.FossilBirthDeathTree;
+import lphy.core.model.Value;
+import lphybeast.BEASTContext;
+import org.openjdk.jmh.annotations.*;
+import sa.evolution.speciation.SABirthDeathModel;
+import sa.lphybeast.tobeast.generators.FossilBirthDeathTreeToBEAST;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The conversion of fossilized birth-death trees with a given number of extant taxa by
+ * both modifyBEASTValues and generatorToBEAST of {@link FossilBirthDeathTreeToBEAST}.
+ * The script is simulated once per trial, and every call is measured on a fresh context,
+ * so that the origin is created again.
+ * Use "-prof gc" to get the allocation rate.
+ * @see SimFBDAgeConversionBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 50)
+@Measurement(iterations = 200)
+@Fork(1)
+public class SAConversionBenchmark {
+
+    private static final String FOSSIL_BD_TREE = """
+            lambda ~ Uniform(lower=1.0, upper=1.5);
+            mu ~ Uniform(lower=0.5, upper=1.0);
+            taxa = taxa(names=1:%1$s);
+            fossilTree ~ FossilBirthDeathTree(lambda=lambda, mu=mu, taxa=taxa, psi=1.0, rho=1.0);
+            D ~ PhyloCTMC(L=%2$s, Q=jukesCantor(), tree=fossilTree);""";
+
+    /**
+     * the number of extant taxa
+     */
+    @Param({"20", "200", "2000"})
+    public int ntaxa;
+
+    @Param({"200"})
+    public int nchar;
+
+    private final FossilBirthDeathTreeToBEAST converter = new FossilBirthDeathTreeToBEAST();
+    private PreparedModel model;
+    private Value<?> tree;
+    private BEASTContext context;
+
+    @Setup(Level.Trial)
+    public void simulate() throws IOException {
+        BenchUtils.loadServices();
+        model = PreparedModel.simulate(String.format(FOSSIL_BD_TREE, ntaxa, nchar), "fossilBDTreeBench", BenchUtils.SEED);
+        tree = model.getGeneratedValue(FossilBirthDeathTree.class);
+    }
+
+    @Setup(Level.Iteration)
+    public void prepareContext() {
+        context = model.newContext();
+    }
+
+    @Benchmark
+    public SABirthDeathModel fossilBirthDeathTreeToBEAST() {
+        FossilBirthDeathTree generator = (FossilBirthDeathTree) tree.getGenerator();
+        BEASTInterface beastTree = model.getBEASTObject(tree);
+        converter.modifyBEASTValues(generator, beastTree, context);
+        return converter.generatorToBEAST(generator, beastTree, context);
+    }
+
+}
@@ -0,0 +1,102 @@
+package lphybeast.ext.bench;
+
+import sa.lphybeast.tobeast.SAOptions;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Compare the ESS per CPU hour of the sampled-ancestor operators on a fossil-heavy simulated tree,
+ * using the default operators, the adaptive weights (see {@link sa.lphybeast.operators.SAOperatorWeights}),
+ * and the moves wrapped into ORC's AdaptableOperatorSampler, which needs ORC installed.
+ * The same tree is simulated for both, and the MCMC starts from the same seed.
+ * ESS is computed after 10% burn-in for the posterior, the tree height and the origin,
+ * and the minimum of them is also reported.
+ * <pre>
+ * java -cp target/benchmarks.jar lphybeast.ext.bench.SAOperatorsESS [ntaxa] [psi] [chainLength] [seed]
+ * </pre>
+ */
+public class SAOperatorsESS {
+
+    private static final String FOSSIL_BD_TREE = """
+            lambda ~ Uniform(lower=1.0, upper=1.5);
+            mu ~ Uniform(lower=0.5, upper=1.0);
+            taxa = taxa(names=1:%1$s);
+            fossilTree ~ FossilBirthDeathTree(lambda=lambda, mu=mu, taxa=taxa, psi=%2$s, rho=1.0);
+            D ~ PhyloCTMC(L=200, Q=jukesCantor(), tree=fossilTree);""";
+
+    public static final double BURN_IN = 0.1;
+
+    // the name of configuration -> SA options
+    public static final Map<String, Map<String, String>> CONFIGS = new LinkedHashMap<>();
+    static {
+        CONFIGS.put("classic", Map.of());
+        CONFIGS.put("weights", Map.of(SAOptions.OPERATOR_WEIGHTS, SAOptions.OperatorWeights.ADAPTIVE.name()));
+        CONFIGS.put("sampler", Map.of(SAOptions.OPERATOR_MODE, SAOptions.OperatorMode.ADAPTABLE.name()));
+    }
+
+    public record ESSPerHour(String config, double cpuHours,
+                             double posteriorESS, double treeHeightESS, double originESS) {
+
+        public double minESS() {
+            return Math.min(posteriorESS, Math.min(treeHeightESS, originESS));
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%-8s  CPU = %.4f h  ESS/h : posterior = %-10.1f tree height = %-10.1f " +
+                            "origin = %-10.1f min = %.1f", config, cpuHours, posteriorESS / cpuHours,
+                    treeHeightESS / cpuHours, originESS / cpuHours, minESS() / cpuHours);
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        int ntaxa = args.length > 0 ? Integer.parseInt(args[0]) : 100;
+        // higher psi gives more fossils
+        double psi = args.length > 1 ? Double.parseDouble(args[1]) : 2.0;
+        long chainLength = args.length > 2 ? Long.parseLong(args[2]) : 5_000_000;
+        long seed = args.length > 3 ? Long.parseLong(args[3]) : 777;
+
+        BenchUtils.loadServices();
+        Path dir = Files.createTempDirectory("saOperatorWeightsESS");
+        String script = String.format(FOSSIL_BD_TREE, ntaxa, psi);
+
+        List<ESSPerHour> results = new ArrayList<>();
+        for (Map.Entry<String, Map<String, String>> config : CONFIGS.entrySet())
+            results.add(run(script, config.getKey(), config.getValue(), chainLength, seed, dir));
+
+        System.out.println("FossilBirthDeathTree with " + ntaxa + " extant taxa and psi = " + psi +
+                ", logs in " + dir);
+        results.forEach(System.out::println);
+    }
+
+    public static ESSPerHour run(String script, String config, Map<String, String> options, long chainLength,
+                                 long seed, Path dir) throws Exception {
+        String fileStem = "fossilBD_" + config;
+        for (String option : List.of(SAOptions.OPERATOR_WEIGHTS, SAOptions.OPERATOR_MODE))
+            System.clearProperty(SAOptions.PREFIX + option);
+        options.forEach((name, value) -> System.setProperty(SAOptions.PREFIX + name, value));
+
+        ThreadMXBean threadMXBean = ManagementFactory.getThreadMXBean();
+        long start = threadMXBean.getCurrentThreadCpuTime();
+        Path traceLog = BenchUtils.runMCMC(script, fileStem, chainLength, seed, dir);
+        double cpuHours = (threadMXBean.getCurrentThreadCpuTime() - start) / 3.6e12;
+
+        TraceLog trace = new TraceLog(traceLog);
+        return new ESSPerHour(config, cpuHours, getESS(trace.getColumn("posterior")),
+                getESS(trace.findColumnEndsWith(".height")), getESS(trace.findColumnEndsWith(".origin")));
+    }
+
+    private static double getESS(List<Double> values) {
+        if (values == null)
+            return Double.NaN;
+        return TraceLog.getESS(values.subList((int) (values.size() * BURN_IN), values.size()));
+    }
+
+}
@@ -0,0 +1,87 @@
+package lphybeast.ext.bench;
+
+import sa.lphybeast.tobeast.SAOptions;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Measure the burn-in of a large simulated fossilized birth-death tree,
+ * when the origin is initialised by the margin or by the old "+ ntaxa" hack, see {@link SAOptions}.
+ * The same tree is simulated for both, and the MCMC starts from the same seed.
+ * The burn-in is the first sample whose posterior reaches
+ * the mean - 2 * sd of the posterior in the second half of the chain.
+ * It is a plain runner rather than JMH, because it measures the samples not the time:
+ * <pre>
+ * java -cp target/benchmarks.jar lphybeast.ext.bench.SAOriginBurnIn [ntaxa] [chainLength] [seed]
+ * </pre>
+ */
+public class SAOriginBurnIn {
+
+    private static final String FOSSIL_BD_TREE = """
+            lambda ~ Uniform(lower=1.0, upper=1.5);
+            mu ~ Uniform(lower=0.5, upper=1.0);
+            taxa = taxa(names=1:%1$s);
+            fossilTree ~ FossilBirthDeathTree(lambda=lambda, mu=mu, taxa=taxa, psi=1.0, rho=1.0);
+            D ~ PhyloCTMC(L=200, Q=jukesCantor(), tree=fossilTree);""";
+
+    public record BurnIn(SAOptions.OriginInit originInit, double initOrigin, long burnIn, long chainLength) {
+        @Override
+        public String toString() {
+            return String.format("%-6s  initial origin = %-12.4f  burn-in = %-10d (%.1f%% of %d)",
+                    originInit, initOrigin, burnIn, 100.0 * burnIn / chainLength, chainLength);
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        int ntaxa = args.length > 0 ? Integer.parseInt(args[0]) : 500;
+        long chainLength = args.length > 1 ? Long.parseLong(args[1]) : 2_000_000;
+        long seed = args.length > 2 ? Long.parseLong(args[2]) : 777;
+
+        BenchUtils.loadServices();
+        Path dir = Files.createTempDirectory("saOriginBurnIn");
+        String script = String.format(FOSSIL_BD_TREE, ntaxa);
+
+        List<BurnIn> results = new ArrayList<>();
+        for (SAOptions.OriginInit originInit : SAOptions.OriginInit.values())
+            results.add(run(script, originInit, chainLength, seed, dir));
+
+        System.out.println("FossilBirthDeathTree with " + ntaxa + " extant taxa, logs in " + dir);
+        results.forEach(System.out::println);
+    }
+
+    public static BurnIn run(String script, SAOptions.OriginInit originInit, long chainLength,
+                             long seed, Path dir) throws Exception {
+        String fileStem = "fossilBD_" + originInit.name().toLowerCase();
+        System.setProperty(SAOptions.PREFIX + SAOptions.ORIGIN_INIT, originInit.name());
+        Path traceLog = BenchUtils.runMCMC(script, fileStem, chainLength, seed, dir);
+        return getBurnIn(new TraceLog(traceLog), originInit, chainLength);
+    }
+
+    private static BurnIn getBurnIn(TraceLog traceLog, SAOptions.OriginInit originInit, long chainLength) {
+        List<Double> samples = traceLog.getSamples();
+        List<Double> posteriors = traceLog.getColumn("posterior");
+        if (posteriors.size() < 4)
+            throw new IllegalArgumentException("Too few samples in the trace log !");
+        List<Double> origins = traceLog.findColumnEndsWith(".origin");
+        double initOrigin = origins != null ? origins.get(0) : Double.NaN;
+
+        // the stationary posterior from the second half
+        List<Double> secondHalf = posteriors.subList(posteriors.size() / 2, posteriors.size());
+        double mean = secondHalf.stream().mapToDouble(Double::doubleValue).average().orElseThrow();
+        double var = secondHalf.stream().mapToDouble(p -> (p - mean) * (p - mean)).sum() / (secondHalf.size() - 1);
+        double threshold = mean - 2 * Math.sqrt(var);
+
+        long burnIn = samples.get(samples.size() - 1).longValue();
+        for (int i = 0; i < posteriors.size(); i++) {
+            if (posteriors.get(i) >= threshold) {
+                burnIn = samples.get(i).longValue();
+                break;
+            }
+        }
+        return new BurnIn(originInit, initOrigin, burnIn, chainLength);
+    }
+
+}
@@ -0,0 +1,65 @@
+package lphybeast.ext.bench;
+
+import beast.base.core.BEASTInterface;
+import lphy.base.evolution.birthdeath.SimFBDAge;
+import lphy.core.model.Value;
+import lphybeast.BEASTContext;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import sa.lphybeast.tobeast.generators.SimFBDAgeToBEAST;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The conversion of many SimFBDAge trees in one model by
+ * both modifyBEASTValues and generatorToBEAST of {@link SimFBDAgeToBEAST},
+ * where the origin of every tree is created and added into the state once.
+ * The time per call should grow linearly with the number of trees.
+ * The script is simulated once per trial, and every call is measured on a fresh context.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 50)
+@Measurement(iterations = 200)
+@Fork(1)
+public class SATreeOriginBenchmark {
+
+    private static final String SIM_FBD_AGE = "tree%1$s ~ SimFBDAge(lambda=1, mu=0.6, frac=0.3, psi=0.4, originAge=4);\n";
+
+    @Param({"20", "200"})
+    public int ntrees;
+
+    private final SimFBDAgeToBEAST converter = new SimFBDAgeToBEAST();
+    private PreparedModel model;
+    private List<Value<?>> trees;
+    private BEASTContext context;
+
+    @Setup(Level.Trial)
+    public void simulate() throws IOException {
+        BenchUtils.loadServices();
+        StringBuilder script = new StringBuilder();
+        for (int i = 0; i < ntrees; i++)
+            script.append(String.format(SIM_FBD_AGE, i));
+        model = PreparedModel.simulate(script.toString(), "manySimFBDAgeBench", BenchUtils.SEED);
+        trees = model.getGeneratedValues(SimFBDAge.class);
+    }
+
+    @Setup(Level.Iteration)
+    public void prepareContext() {
+        context = model.newContext();
+    }
+
+    @Benchmark
+    public void manySimFBDAgeToBEAST(Blackhole blackhole) {
+        for (Value<?> tree : trees) {
+            SimFBDAge generator = (SimFBDAge) tree.getGenerator();
+            BEASTInterface beastTree = model.getBEASTObject(tree);
+            converter.modifyBEASTValues(generator, beastTree, context);
+            blackhole.consume(converter.generatorToBEAST(generator, beastTree, context));
+        }
+    }
+
+}
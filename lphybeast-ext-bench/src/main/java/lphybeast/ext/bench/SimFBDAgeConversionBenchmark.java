@@ -0,0 +1,71 @@
+package lphybeast.ext.bench;
+
+import beast.base.core.BEASTInterface;
+import lphy.base.evolution.birthdeath.SimFBDAge;
+import lphy.core.model.Value;
+import lphybeast.BEASTContext;
+import org.openjdk.jmh.annotations.*;
+import sa.evolution.speciation.SABirthDeathModel;
+import sa.lphybeast.tobeast.generators.SimFBDAgeToBEAST;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The conversion of the trees of SimFBDAge by
+ * both modifyBEASTValues and generatorToBEAST of {@link SimFBDAgeToBEAST}.
+ * SimFBDAge cannot be conditioned on the number of taxa, so the tree size is controlled by the origin age.
+ * The expected number of lineages grows as exp((lambda - mu) * originAge),
+ * e.g. about 2, 25 and 270 lineages for the origin ages below,
+ * of which the extant ones are sampled with the probability frac.
+ * The script is simulated once per trial, and every call is measured on a fresh context,
+ * so that the origin is created again.
+ * Use "-prof gc" to get the allocation rate.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 50)
+@Measurement(iterations = 200)
+@Fork(1)
+public class SimFBDAgeConversionBenchmark {
+
+    private static final String SIM_FBD_AGE = """
+            tree ~ SimFBDAge(lambda=1, mu=0.6, frac=0.3, psi=0.4, originAge=%1$s);
+            D ~ PhyloCTMC(L=%2$s, Q=jukesCantor(), tree=tree);""";
+
+    /**
+     * the origin age, which controls the tree size
+     */
+    @Param({"2", "8", "14"})
+    public double originAge;
+
+    @Param({"200"})
+    public int nchar;
+
+    private final SimFBDAgeToBEAST converter = new SimFBDAgeToBEAST();
+    private PreparedModel model;
+    private Value<?> tree;
+    private BEASTContext context;
+
+    @Setup(Level.Trial)
+    public void simulate() throws IOException {
+        BenchUtils.loadServices();
+        model = PreparedModel.simulate(String.format(SIM_FBD_AGE, originAge, nchar), "simFBDAgeBench", BenchUtils.SEED);
+        tree = model.getGeneratedValue(SimFBDAge.class);
+    }
+
+    @Setup(Level.Iteration)
+    public void prepareContext() {
+        context = model.newContext();
+    }
+
+    @Benchmark
+    public SABirthDeathModel simFBDAgeToBEAST() {
+        SimFBDAge generator = (SimFBDAge) tree.getGenerator();
+        BEASTInterface beastTree = model.getBEASTObject(tree);
+        converter.modifyBEASTValues(generator, beastTree, context);
+        return converter.generatorToBEAST(generator, beastTree, context);
+    }
+
+}
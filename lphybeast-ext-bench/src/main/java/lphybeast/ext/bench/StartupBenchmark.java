@@ -0,0 +1,42 @@
+package lphybeast.ext.bench;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The cold startup of converting a plain HKY script, which uses none of the extensions.
+ * Every fork is a fresh JVM, and only the first conversion is measured,
+ * which includes loading the installed BEAST packages and the class loading of the converters.
+ * To compare with and without the Mascot, MM and SA extensions, give two package folders,
+ * one of which has only LPhyBEAST installed, e.g. -p packageDir=/path/core,/path/ext .
+ * The empty default uses the BEAST package folder of the user.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 0)
+@Measurement(iterations = 1)
+@Fork(10)
+public class StartupBenchmark {
+
+    private static final String HKY = """
+            κ ~ LogNormal(meanlog=1.0, sdlog=0.5);
+            π ~ Dirichlet(conc=[2.0,2.0,2.0,2.0]);
+            Θ ~ LogNormal(meanlog=3.0, sdlog=1.0);
+            ψ ~ Coalescent(n=16, theta=Θ);
+            D ~ PhyloCTMC(L=200, Q=hky(kappa=κ, freq=π), tree=ψ);""";
+
+    @Param({""})
+    public String packageDir;
+
+    @Benchmark
+    public String startupHKY() throws IOException {
+        if (!packageDir.isEmpty())
+            System.setProperty("beast.user.package.dir", packageDir);
+        BenchUtils.loadServices();
+        return BenchUtils.toBEASTXML(HKY, "startupHKY", BenchUtils.SEED);
+    }
+
+}
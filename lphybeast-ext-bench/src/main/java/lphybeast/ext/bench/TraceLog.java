@@ -0,0 +1,106 @@
+package lphybeast.ext.bench;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A minimal reader of BEAST tab-delimited trace logs,
+ * to measure the burn-in and ESS of the MCMC runs started by the benchmark runners.
+ */
+public class TraceLog {
+
+    private final Path path;
+    // column name -> values, where the 1st column is the sample
+    private final Map<String, List<Double>> columns = new LinkedHashMap<>();
+
+    public TraceLog(Path path) throws IOException {
+        this.path = path;
+        List<String> names = null;
+        try (BufferedReader reader = Files.newBufferedReader(path)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.startsWith("#") || line.isBlank())
+                    continue;
+                String[] cols = line.split("\t");
+                if (names == null) {
+                    names = List.of(cols);
+                    for (String name : names)
+                        columns.put(name, new ArrayList<>());
+                    continue;
+                }
+                for (int i = 0; i < names.size() && i < cols.length; i++)
+                    columns.get(names.get(i)).add(Double.parseDouble(cols[i]));
+            }
+        }
+        if (names == null)
+            throw new IllegalArgumentException("Empty trace log " + path);
+    }
+
+    public List<Double> getSamples() {
+        return columns.values().iterator().next();
+    }
+
+    /**
+     * @param name  the exact column name
+     * @return the values, or throw exception if not found.
+     */
+    public List<Double> getColumn(String name) {
+        List<Double> values = columns.get(name);
+        if (values == null)
+            throw new IllegalArgumentException("Cannot find " + name + " in " + path);
+        return values;
+    }
+
+    /**
+     * @param suffix  the suffix of the column name, e.g. ".origin"
+     * @return the values of the first matched column, or null if not found.
+     */
+    public List<Double> findColumnEndsWith(String suffix) {
+        for (Map.Entry<String, List<Double>> entry : columns.entrySet()) {
+            if (entry.getKey().endsWith(suffix))
+                return entry.getValue();
+        }
+        return null;
+    }
+
+    public int getSampleCount() {
+        return getSamples().size();
+    }
+
+    /**
+     * @param values  the trace after burn-in
+     * @return the effective sample size in the number of logged samples,
+     *         using the initial positive sequence of auto-correlations as Tracer.
+     */
+    public static double getESS(List<Double> values) {
+        int n = values.size();
+        if (n < 2)
+            return n;
+        double mean = values.stream().mapToDouble(Double::doubleValue).average().orElseThrow();
+        double var0 = 0;
+        for (double v : values)
+            var0 += (v - mean) * (v - mean);
+        var0 /= n;
+        if (var0 == 0)
+            return n;
+
+        double sumRho = 0;
+        for (int lag = 1; lag < n; lag++) {
+            double cov = 0;
+            for (int i = 0; i < n - lag; i++)
+                cov += (values.get(i) - mean) * (values.get(i + lag) - mean);
+            double rho = cov / n / var0;
+            if (rho <= 0)
+                break;
+            sumRho += rho;
+        }
+        return n / (1 + 2 * sumRho);
+    }
+
+}
@@ -0,0 +1,208 @@
+package lphybeast.ext.batch;
+
+import beast.pkgmgmt.PackageManager;
+import lphybeast.LPhyBeast;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Convert many LPhy scripts into BEAST XML in one JVM,
+ * where LPhyBEAST and its extensions (Mascot, MM, SA) are loaded only once
+ * from the installed BEAST packages.
+ * The scripts are converted one by one, because the conversion shares static state
+ * in LPhyBEAST and the extensions, which is not guaranteed to be thread-safe.
+ * Each XML is written next to its script or into the output folder,
+ * and the time and the failure of every script are reported at the end.
+ * <pre>
+ * applauncher BatchLPhyBEAST [-o outDir] (dir|file.lphy)...
+ * </pre>
+ */
+public class BatchLPhyBEAST {
+
+    public static final String LPHY_EXT = ".lphy";
+
+    public record Result(Path script, Path xml, long millis, Throwable error) {
+        public boolean isSuccess() {
+            return error == null;
+        }
+    }
+
+    /**
+     * The command line arguments.
+     * @param outDir  the folder to write XML, if null, write to the folder of each script.
+     * @param inputs  LPhy scripts, or folders containing LPhy scripts
+     */
+    public record Arguments(Path outDir, List<Path> inputs) {
+
+        /**
+         * @param args  the command line arguments
+         * @return the parsed arguments, or null if the usage is requested.
+         * @throws IllegalArgumentException if the arguments are invalid.
+         */
+        public static Arguments parse(String[] args) {
+            Path outDir = null;
+            List<Path> inputs = new ArrayList<>();
+            for (int i = 0; i < args.length; i++) {
+                switch (args[i]) {
+                    case "-o" -> {
+                        if (i + 1 >= args.length || args[i + 1].startsWith("-"))
+                            throw new IllegalArgumentException("Option -o requires the output folder !");
+                        outDir = Paths.get(args[++i]);
+                    }
+                    case "-h", "-help" -> {
+                        return null;
+                    }
+                    default -> {
+                        if (args[i].startsWith("-"))
+                            throw new IllegalArgumentException("Unknown option " + args[i] + " !");
+                        inputs.add(Paths.get(args[i]));
+                    }
+                }
+            }
+            if (inputs.isEmpty())
+                throw new IllegalArgumentException("No LPhy script is given !");
+            return new Arguments(outDir, List.copyOf(inputs));
+        }
+    }
+
+    private final Path outDir;
+
+    /**
+     * @param outDir    the folder to write XML, if null, write to the folder of each script.
+     */
+    public BatchLPhyBEAST(Path outDir) {
+        this.outDir = outDir;
+    }
+
+    /**
+     * @param inputs  LPhy scripts, or folders containing LPhy scripts
+     * @return all LPhy scripts in the given order
+     */
+    public static List<Path> listScripts(List<Path> inputs) throws IOException {
+        List<Path> scripts = new ArrayList<>();
+        for (Path input : inputs) {
+            if (Files.isDirectory(input)) {
+                try (Stream<Path> files = Files.list(input)) {
+                    files.filter(f -> f.getFileName().toString().endsWith(LPHY_EXT))
+                            .sorted().forEach(scripts::add);
+                }
+            } else if (Files.exists(input)) {
+                scripts.add(input);
+            } else
+                throw new IllegalArgumentException("Cannot find LPhy script : " + input.toAbsolutePath());
+        }
+        return scripts;
+    }
+
+    /**
+     * Convert all scripts in order.
+     * A failure is recorded in its {@link Result}, which does not stop others.
+     * @param scripts  LPhy scripts
+     * @return the results in the same order of scripts
+     */
+    public List<Result> convert(List<Path> scripts) {
+        List<Result> results = new ArrayList<>(scripts.size());
+        for (Path script : scripts)
+            results.add(convert(script));
+        return results;
+    }
+
+    private Result convert(Path script) {
+        final long start = System.nanoTime();
+        Path xmlPath = null;
+        try {
+            String fileName = script.getFileName().toString();
+            String fileStem = fileName.endsWith(LPHY_EXT) ?
+                    fileName.substring(0, fileName.length() - LPHY_EXT.length()) : fileName;
+            Path dir = outDir != null ? outDir : script.toAbsolutePath().getParent();
+            xmlPath = Paths.get(dir.toString(), fileStem + ".xml");
+
+            String lphy = Files.readString(script);
+            // the file stem is used for the log and tree files inside XML
+            String xml = new LPhyBeast().lphyStrToXML(lphy, fileStem);
+            if (xml == null || xml.isEmpty())
+                throw new IllegalStateException("No XML is created from " + script);
+            Files.writeString(xmlPath, xml);
+
+            return new Result(script, xmlPath, elapsedMillis(start), null);
+        } catch (Exception e) {
+            return new Result(script, xmlPath, elapsedMillis(start), e);
+        }
+    }
+
+    private static long elapsedMillis(long start) {
+        return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+    }
+
+    /**
+     * Print the time of every script, failures and the summary.
+     * @return the number of failures
+     */
+    public static int report(List<Result> results, long totalMillis, PrintStream out) {
+        int failures = 0;
+        out.println("script\tmillis\tstatus");
+        for (Result result : results) {
+            out.println(result.script() + "\t" + result.millis() + "\t" +
+                    (result.isSuccess() ? "OK" : "FAILED : " + result.error()));
+            if (!result.isSuccess())
+                failures++;
+        }
+        out.println("Converted " + (results.size() - failures) + " of " + results.size() +
+                " LPhy scripts in " + totalMillis + " ms, failures = " + failures);
+        return failures;
+    }
+
+    private static void usage(PrintStream err) {
+        err.println("Usage: BatchLPhyBEAST [-o outDir] (dir|file.lphy)...");
+    }
+
+    /**
+     * Load the installed BEAST packages, then convert the scripts given by the arguments.
+     * @param args  the command line arguments
+     * @param out   to print the report
+     * @param err   to print the usage and errors
+     * @return the exit code, 0 if all scripts are converted, otherwise 1.
+     */
+    public static int run(String[] args, PrintStream out, PrintStream err) throws IOException {
+        Arguments arguments;
+        try {
+            arguments = Arguments.parse(args);
+        } catch (IllegalArgumentException e) {
+            err.println(e.getMessage());
+            usage(err);
+            return 1;
+        }
+        if (arguments == null) {
+            usage(err);
+            return 0;
+        }
+        if (arguments.outDir() != null)
+            Files.createDirectories(arguments.outDir());
+
+        final long start = System.nanoTime();
+        // LPhyBEAST and the extensions, as well as the BEAST packages they require
+        PackageManager.loadExternalJars();
+
+        List<Path> scripts = listScripts(arguments.inputs());
+        BatchLPhyBEAST batch = new BatchLPhyBEAST(arguments.outDir());
+        List<Result> results = batch.convert(scripts);
+
+        int failures = report(results, elapsedMillis(start), out);
+        return failures > 0 ? 1 : 0;
+    }
+
+    public static void main(String[] args) throws IOException {
+        int exitCode = run(args, System.out, System.err);
+        if (exitCode != 0)
+            System.exit(exitCode);
+    }
+
+}
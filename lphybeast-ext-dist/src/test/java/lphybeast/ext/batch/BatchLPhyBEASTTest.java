@@ -0,0 +1,93 @@
+package lphybeast.ext.batch;
+
+import lphy.core.io.UserDir;
+import lphybeast.TestUtils;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Parse the arguments, and convert a folder of LPhy scripts including a broken one.
+ */
+public class BatchLPhyBEASTTest {
+
+    private final String coalescent = """
+            Θ ~ LogNormal(meanlog=3.0, sdlog=1.0);
+            ψ ~ Coalescent(n=10, theta=Θ);
+            D ~ PhyloCTMC(L=50, Q=jukesCantor(), tree=ψ);""";
+
+    @Test
+    public void testArguments() {
+        BatchLPhyBEAST.Arguments arguments = BatchLPhyBEAST.Arguments.parse(new String[]{"-o", "out", "a.lphy", "dir"});
+        assertEquals(Paths.get("out"), arguments.outDir());
+        assertEquals(List.of(Paths.get("a.lphy"), Paths.get("dir")), arguments.inputs());
+
+        assertNull(BatchLPhyBEAST.Arguments.parse(new String[]{"-h"}), "usage");
+        // no value after -o
+        assertThrows(IllegalArgumentException.class, () -> BatchLPhyBEAST.Arguments.parse(new String[]{"a.lphy", "-o"}));
+        assertThrows(IllegalArgumentException.class, () -> BatchLPhyBEAST.Arguments.parse(new String[]{"-threads", "4", "a.lphy"}));
+        assertThrows(IllegalArgumentException.class, () -> BatchLPhyBEAST.Arguments.parse(new String[]{}));
+    }
+
+    private void loadServices() {
+        // load ../LPhyBeast/version.xml
+        Path lphybeastDir = Paths.get(UserDir.getUserDir().toAbsolutePath().getParent().toString(),
+                "..","LPhyBeast");
+        if (!Files.exists(lphybeastDir))
+            throw new IllegalArgumentException("Cannot locate LPhyBeast Dir : " + lphybeastDir);
+        TestUtils.loadServices(lphybeastDir.toString());
+    }
+
+    @Test
+    public void testConvert(@TempDir Path dir) throws IOException {
+        loadServices();
+
+        Files.writeString(dir.resolve("b.lphy"), "ψ ~ NoSuchTree(n=10);");
+        Files.writeString(dir.resolve("a.lphy"), coalescent);
+        Files.writeString(dir.resolve("notes.txt"), "not a script");
+
+        List<Path> scripts = BatchLPhyBEAST.listScripts(List.of(dir));
+        assertEquals(List.of(dir.resolve("a.lphy"), dir.resolve("b.lphy")), scripts, "sorted LPhy scripts only");
+
+        Path outDir = Files.createDirectory(dir.resolve("out"));
+        List<BatchLPhyBEAST.Result> results = new BatchLPhyBEAST(outDir).convert(scripts);
+
+        assertTrue(results.get(0).isSuccess(), "a.lphy");
+        assertTrue(Files.readString(outDir.resolve("a.xml")).contains("fileName=\"a.log\""), "a.xml");
+        // the failure is reported without stopping the batch
+        assertFalse(results.get(1).isSuccess(), "b.lphy");
+        assertFalse(Files.exists(outDir.resolve("b.xml")));
+    }
+
+    @Test
+    public void testRun(@TempDir Path dir) throws IOException {
+        loadServices();
+        Files.writeString(dir.resolve("a.lphy"), coalescent);
+        Path outDir = dir.resolve("out");
+
+        // the main path, which also loads the installed BEAST packages
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ByteArrayOutputStream err = new ByteArrayOutputStream();
+        int exitCode = BatchLPhyBEAST.run(new String[]{"-o", outDir.toString(), dir.toString()},
+                new PrintStream(out, true), new PrintStream(err, true));
+
+        assertEquals(0, exitCode, err.toString());
+        assertTrue(Files.exists(outDir.resolve("a.xml")), "a.xml");
+        assertTrue(out.toString().contains("Converted 1 of 1 LPhy scripts"), "report");
+
+        // invalid arguments print the usage, without exiting the JVM
+        err.reset();
+        assertEquals(1, BatchLPhyBEAST.run(new String[]{"-o"}, new PrintStream(out, true), new PrintStream(err, true)));
+        assertTrue(err.toString().contains("Usage: BatchLPhyBEAST"), "usage");
+    }
+
+}
@@ -0,0 +1,52 @@
+package lphybeast.ext.instrument;
+
+import jdk.jfr.*;
+
+/**
+ * The JFR event of one call of an extension converter, e.g. generatorToBEAST,
+ * modifyBEASTValues or createTreeOperators. Record it by
+ * <pre>
+ * java -XX:StartFlightRecording:filename=lphybeast.jfr ...
+ * jfr print --events lphybeast.Conversion lphybeast.jfr
+ * </pre>
+ */
+@Name(ConversionEvent.NAME)
+@Label("LPhyBEAST Conversion")
+@Category({"LPhyBEAST", "Extension"})
+@Description("A call of an extension converter, with the allocation and the BEAST objects it creates")
+@StackTrace(false)
+public class ConversionEvent extends Event {
+
+    public static final String NAME = "lphybeast.Conversion";
+
+    @Label("Extension")
+    public String extension;
+
+    @Label("Converter")
+    public String converter;
+
+    @Label("Phase")
+    @Description("generatorToBEAST, modifyBEASTValues or createTreeOperators")
+    public String phase;
+
+    @Label("Allocated")
+    @DataAmount
+    public long allocatedBytes;
+
+    @Label("BEAST Objects")
+    @Description("The number of BEAST objects added into BEASTContext")
+    public int beastObjects;
+
+    @Label("State Nodes")
+    @Description("The number of state nodes added into the state of BEASTContext")
+    public int stateNodes;
+
+    @Label("Operators")
+    @Description("The number of operators added into BEASTContext or returned by createTreeOperators")
+    public int operators;
+
+    @Label("Loggers")
+    @Description("The number of extra loggers added into BEASTContext")
+    public int loggers;
+
+}
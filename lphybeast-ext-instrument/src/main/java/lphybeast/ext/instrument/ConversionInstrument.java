@@ -0,0 +1,229 @@
+package lphybeast.ext.instrument;
+
+import lphybeast.BEASTContext;
+
+import java.io.PrintStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+import java.util.logging.Level;
+
+/**
+ * The instrumentation of extension converters, which measures the wall time, the allocated bytes,
+ * and the number of BEAST objects, state nodes, operators and loggers created by a call, e.g.
+ * <pre>
+ * try (ConversionInstrument.Measurement measurement =
+ *         ConversionInstrument.start(this, ConversionInstrument.GENERATOR_TO_BEAST, context)) {
+ *     ...
+ * }
+ * </pre>
+ * The measurements are committed as {@link ConversionEvent} when JFR is recording,
+ * and summarised per converter when -Dlphybeast.instrument.summary=true,
+ * where the summary is printed to stderr at exit.
+ * When neither is on, a measurement does nothing.
+ * The counts are the changes of the sizes of the elements, the state, the extra operators
+ * and the extra loggers in {@link BEASTContext}, which are O(1) per call.
+ * The operators returned to the caller, e.g. by createTreeOperators, are reported by the converter.
+ */
+public final class ConversionInstrument {
+
+    public static final String SUMMARY = "lphybeast.instrument.summary";
+
+    public static final String GENERATOR_TO_BEAST = "generatorToBEAST";
+    public static final String MODIFY_BEAST_VALUES = "modifyBEASTValues";
+    public static final String CREATE_TREE_OPERATORS = "createTreeOperators";
+
+    private static final java.util.logging.Logger LOGGER = java.util.logging.Logger.getLogger("lphybeast.ext");
+
+    private static final boolean SUMMARY_ENABLED = Boolean.getBoolean(SUMMARY);
+    // extension/converter/phase -> stats
+    private static final Map<String, Stats> summary = new ConcurrentHashMap<>();
+
+    static {
+        if (SUMMARY_ENABLED)
+            Runtime.getRuntime().addShutdownHook(new Thread(() -> printSummary(System.err)));
+    }
+
+    private static final Measurement NOOP = new Measurement();
+
+    private ConversionInstrument() { }
+
+    /**
+     * Start to measure a call of the converter.
+     * @param converter  the converter, whose class and package name the measurement
+     * @param phase      e.g. {@link #GENERATOR_TO_BEAST}
+     * @param context    {@link BEASTContext}, whose elements are counted
+     * @return the measurement, which is committed when it is closed.
+     */
+    public static Measurement start(Object converter, String phase, BEASTContext context) {
+        ConversionEvent event = new ConversionEvent();
+        if (!event.isEnabled() && !SUMMARY_ENABLED)
+            return NOOP;
+        return new Measurement(event, converter.getClass(), phase, context);
+    }
+
+    /**
+     * An informative message of the converter, which is committed as {@link ConversionMessageEvent},
+     * and logged at the fine level, so that batch runs stay quiet.
+     * The message is only created when either of them is enabled, and at most once.
+     * @param converter  the converter
+     * @param message    the supplier of the message
+     */
+    public static void message(Object converter, Supplier<String> message) {
+        ConversionMessageEvent event = new ConversionMessageEvent();
+        boolean loggable = LOGGER.isLoggable(Level.FINE);
+        if (!event.isEnabled() && !loggable)
+            return;
+        String converterName = converter.getClass().getSimpleName();
+        String text = message.get();
+        if (event.isEnabled()) {
+            event.converter = converterName;
+            event.message = text;
+            event.commit();
+        }
+        if (loggable)
+            LOGGER.log(Level.FINE, converterName + " : " + text);
+    }
+
+    public static boolean isSummaryEnabled() {
+        return SUMMARY_ENABLED;
+    }
+
+    /**
+     * @return the summary of all measurements per converter and phase, sorted by the name.
+     */
+    public static String getSummary() {
+        StringBuilder report = new StringBuilder();
+        report.append(String.format("%-60s %8s %12s %14s %8s %8s %8s %8s%n", "converter", "calls", "time (ms)",
+                "allocated (KB)", "objects", "states", "ops", "loggers"));
+        new TreeMap<>(summary).forEach((name, stats) ->
+                report.append(String.format("%-60s %8d %12.3f %14.1f %8d %8d %8d %8d%n", name,
+                        stats.calls.sum(), stats.nanos.sum() / 1e6, stats.allocatedBytes.sum() / 1024.0,
+                        stats.beastObjects.sum(), stats.stateNodes.sum(), stats.operators.sum(),
+                        stats.loggers.sum())));
+        return report.toString();
+    }
+
+    public static void printSummary(PrintStream out) {
+        if (!summary.isEmpty())
+            out.print(getSummary());
+    }
+
+    public static void resetSummary() {
+        summary.clear();
+    }
+
+    private static final class Stats {
+        final LongAdder calls = new LongAdder();
+        final LongAdder nanos = new LongAdder();
+        final LongAdder allocatedBytes = new LongAdder();
+        final LongAdder beastObjects = new LongAdder();
+        final LongAdder stateNodes = new LongAdder();
+        final LongAdder operators = new LongAdder();
+        final LongAdder loggers = new LongAdder();
+    }
+
+    private static long getAllocatedBytes() {
+        ThreadMXBean threadMXBean = ManagementFactory.getThreadMXBean();
+        if (threadMXBean instanceof com.sun.management.ThreadMXBean sunThreadMXBean &&
+                sunThreadMXBean.isThreadAllocatedMemorySupported())
+            return sunThreadMXBean.getCurrentThreadAllocatedBytes();
+        return 0;
+    }
+
+    /**
+     * The measurement of one call, which is committed by {@link #close()}.
+     */
+    public static final class Measurement implements AutoCloseable {
+
+        private final ConversionEvent event;
+        private final String extension;
+        private final String converter;
+        private final String phase;
+        private final BEASTContext context;
+        private final int startElements;
+        private final int startStateNodes;
+        private final int startOperators;
+        private final int startLoggers;
+        private final long startNanos;
+        private final long startBytes;
+        // the operators which are returned to the caller
+        private int operatorCount = 0;
+
+        // no-op
+        private Measurement() {
+            event = null;
+            extension = converter = phase = null;
+            context = null;
+            startElements = startStateNodes = startOperators = startLoggers = 0;
+            startNanos = startBytes = 0;
+        }
+
+        private Measurement(ConversionEvent event, Class<?> converterClass, String phase, BEASTContext context) {
+            this.event = event;
+            // mascot, mm or sa
+            String packageName = converterClass.getPackageName();
+            int dot = packageName.indexOf('.');
+            this.extension = dot > 0 ? packageName.substring(0, dot) : packageName;
+            this.converter = converterClass.getSimpleName();
+            this.phase = phase;
+            this.context = context;
+            this.startElements = context.getElements().size();
+            this.startStateNodes = context.getState().size();
+            this.startOperators = context.getExtraOperators().size();
+            this.startLoggers = context.getExtraLoggers().size();
+            this.startBytes = getAllocatedBytes();
+            this.startNanos = System.nanoTime();
+            event.begin();
+        }
+
+        /**
+         * @param operatorCount  the number of operators created and returned to the caller.
+         */
+        public void setOperatorCount(int operatorCount) {
+            this.operatorCount = operatorCount;
+        }
+
+        @Override
+        public void close() {
+            if (event == null)
+                return;
+            event.end();
+            long nanos = System.nanoTime() - startNanos;
+            long allocatedBytes = getAllocatedBytes() - startBytes;
+            int beastObjects = context.getElements().size() - startElements;
+            int stateNodes = context.getState().size() - startStateNodes;
+            // added into BEASTContext, or returned to the caller
+            int operators = context.getExtraOperators().size() - startOperators + operatorCount;
+            int loggers = context.getExtraLoggers().size() - startLoggers;
+
+            if (event.shouldCommit()) {
+                event.extension = extension;
+                event.converter = converter;
+                event.phase = phase;
+                event.allocatedBytes = allocatedBytes;
+                event.beastObjects = beastObjects;
+                event.stateNodes = stateNodes;
+                event.operators = operators;
+                event.loggers = loggers;
+                event.commit();
+            }
+
+            if (SUMMARY_ENABLED) {
+                Stats stats = summary.computeIfAbsent(extension + "/" + converter + "/" + phase, k -> new Stats());
+                stats.calls.increment();
+                stats.nanos.add(nanos);
+                stats.allocatedBytes.add(allocatedBytes);
+                stats.beastObjects.add(beastObjects);
+                stats.stateNodes.add(stateNodes);
+                stats.operators.add(operators);
+                stats.loggers.add(loggers);
+            }
+        }
+    }
+
+}
@@ -0,0 +1,23 @@
+package lphybeast.ext.instrument;
+
+import jdk.jfr.*;
+
+/**
+ * The JFR event of an informative message from an extension converter,
+ * which used to be printed to the console.
+ */
+@Name(ConversionMessageEvent.NAME)
+@Label("LPhyBEAST Conversion Message")
+@Category({"LPhyBEAST", "Extension"})
+@StackTrace(false)
+public class ConversionMessageEvent extends Event {
+
+    public static final String NAME = "lphybeast.ConversionMessage";
+
+    @Label("Converter")
+    public String converter;
+
+    @Label("Message")
+    public String message;
+
+}
@@ -8,11 +8,8 @@ import lphybeast.ValueToBEAST;
 import lphybeast.spi.LPhyBEASTExt;
 import mascot.lphybeast.tobeast.generators.StructuredCoalescentToMascot;
 
-import java.util.ArrayList;
-import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * The "Container" provider class of SPI
@@ -23,30 +20,35 @@ import java.util.concurrent.ConcurrentHashMap;
  */
 public class MascotLBImpl implements LPhyBEASTExt {
 
+    private static final List<Class<? extends ValueToBEAST>> VALUES_TO_BEASTS = List.of();
+
+    private static final List<Class<? extends GeneratorToBEAST>> GENERATOR_TO_BEASTS = List.of(
+            StructuredCoalescentToMascot.class );
+
     @Override
     public List<Class<? extends ValueToBEAST>> getValuesToBEASTs() {
-        return new ArrayList<>();
+        return VALUES_TO_BEASTS;
     }
 
     @Override
     public List<Class<? extends GeneratorToBEAST>> getGeneratorToBEASTs() {
-        return Arrays.asList( StructuredCoalescentToMascot.class );
+        return GENERATOR_TO_BEASTS;
     }
 
     @Override
     public Map<SequenceType, DataType> getDataTypeMap() {
-        return new ConcurrentHashMap<>();
+        return Map.of();
     }
 
     @Override
     public List<Class<? extends Generator>> getExcludedGenerator() {
-        return new ArrayList<>();
+        return List.of();
     }
 
     @Override
     public List<Class> getExcludedValueType() {
         // For a complex logic, or arrays, use isExcludedValue
-        return new ArrayList<>();
+        return List.of();
     }
 
 }
@@ -0,0 +1,258 @@
+package mascot.lphybeast.tobeast;
+
+import mascot.distribution.Mascot;
+import mascot.logger.StructuredTreeLogger;
+import mascot.lphybeast.tobeast.generators.MigrationAdjacency;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * The options of BEAST MASCOT which trade accuracy for speed, or reduce the tree log,
+ * given by the system properties, e.g. -Dlphybeast.mascot.epsilon=0.01, when running LPhyBEAST:
+ * <ul>
+ *     <li>lphybeast.mascot.epsilon : the step size for the ODE integration, the default is 0.001;</li>
+ *     <li>lphybeast.mascot.maxStep : the maximum step size for the ODE integration, the default is Infinity;</li>
+ *     <li>lphybeast.mascot.useCache : use cache to speed up, the default is false;</li>
+ *     <li>lphybeast.mascot.implementation : java, indicators or allnative;</li>
+ *     <li>lphybeast.mascot.treeLogEvery : the log interval of *.mascot.trees, the default is the main logEvery;</li>
+ *     <li>lphybeast.mascot.treeMaxState : only log the most probable deme per node, the default is false;</li>
+ *     <li>lphybeast.mascot.treeDecimalPlaces : the decimal places of *.mascot.trees, the default is full precision;</li>
+ *     <li>lphybeast.mascot.migrationAdjacency.<i>id</i> : 0 or 1 per backwards migration rate in the order of keys,
+ *     where 0 is structurally zero, e.g. between non-adjacent demes, the default is all connected.
+ *     The <i>id</i> is the LPhy id of the migration rates, so that each model has its own adjacency,
+ *     e.g. -Dlphybeast.mascot.migrationAdjacency.m=1,0,1,1,0,1 .</li>
+ * </ul>
+ * Unset options keep the Mascot defaults.
+ */
+public class MascotOptions {
+
+    public static final String PREFIX = "lphybeast.mascot.";
+    public static final String EPSILON = "epsilon";
+    public static final String MAX_STEP = "maxStep";
+    public static final String USE_CACHE = "useCache";
+    public static final String IMPLEMENTATION = "implementation";
+    public static final String TREE_LOG_EVERY = "treeLogEvery";
+    public static final String TREE_MAX_STATE = "treeMaxState";
+    public static final String TREE_DECIMAL_PLACES = "treeDecimalPlaces";
+    public static final String MIGRATION_ADJACENCY = "migrationAdjacency";
+
+    // Mascot.MascotImplementation is not public
+    public static final Set<String> IMPLEMENTATIONS = Set.of("java", "indicators", "allnative");
+
+    private Double epsilon;
+    private Double maxStep;
+    private Boolean useCache;
+    private String implementation;
+    // StructuredTreeLogger
+    private Long treeLogEvery;
+    private Boolean treeMaxState;
+    private Integer treeDecimalPlaces;
+    // key is the id of migration rates
+    private final Map<String, MigrationAdjacency> migrationAdjacencies = new HashMap<>();
+
+    public MascotOptions() { }
+
+    /**
+     * @return the options from the system properties, which is validated.
+     */
+    public static MascotOptions fromSystemProperties() {
+        MascotOptions options = new MascotOptions();
+        options.epsilon = getDouble(EPSILON);
+        options.maxStep = getDouble(MAX_STEP);
+        String useCache = System.getProperty(PREFIX + USE_CACHE);
+        if (useCache != null)
+            options.useCache = Boolean.parseBoolean(useCache.trim());
+        options.implementation = System.getProperty(PREFIX + IMPLEMENTATION);
+        options.treeLogEvery = getLong(TREE_LOG_EVERY);
+        String treeMaxState = System.getProperty(PREFIX + TREE_MAX_STATE);
+        if (treeMaxState != null)
+            options.treeMaxState = Boolean.parseBoolean(treeMaxState.trim());
+        options.treeDecimalPlaces = getInteger(TREE_DECIMAL_PLACES);
+        String adjacencyPrefix = PREFIX + MIGRATION_ADJACENCY + ".";
+        for (String name : System.getProperties().stringPropertyNames()) {
+            if (name.startsWith(adjacencyPrefix) && name.length() > adjacencyPrefix.length()) {
+                String migrationAdjacency = System.getProperty(name);
+                try {
+                    options.migrationAdjacencies.put(name.substring(adjacencyPrefix.length()),
+                            MigrationAdjacency.parse(migrationAdjacency));
+                } catch (IllegalArgumentException e) {
+                    throw new IllegalArgumentException("Invalid Mascot option " + name +
+                            " = " + migrationAdjacency, e);
+                }
+            }
+        }
+        options.validate();
+        return options;
+    }
+
+    private static Double getDouble(String name) {
+        String value = System.getProperty(PREFIX + name);
+        if (value == null)
+            return null;
+        try {
+            return Double.parseDouble(value.trim());
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid Mascot option " + PREFIX + name + " = " + value, e);
+        }
+    }
+
+    // integers only, e.g. 1.5 or 1e3 is rejected
+    private static Long getLong(String name) {
+        String value = System.getProperty(PREFIX + name);
+        if (value == null)
+            return null;
+        try {
+            return Long.parseLong(value.trim());
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid Mascot option " + PREFIX + name + " = " + value +
+                    ", which must be an integer !", e);
+        }
+    }
+
+    private static Integer getInteger(String name) {
+        Long value = getLong(name);
+        if (value == null)
+            return null;
+        if (value < Integer.MIN_VALUE || value > Integer.MAX_VALUE)
+            throw new IllegalArgumentException("Invalid Mascot option " + PREFIX + name + " = " + value +
+                    ", which is out of the integer range !");
+        return value.intValue();
+    }
+
+    /**
+     * @throws IllegalArgumentException if any option is invalid.
+     */
+    public void validate() {
+        if (epsilon != null && !(epsilon > 0))
+            throw new IllegalArgumentException("Mascot " + EPSILON + " must be positive, but it is " + epsilon + " !");
+        if (maxStep != null && !(maxStep > 0))
+            throw new IllegalArgumentException("Mascot " + MAX_STEP + " must be positive, but it is " + maxStep + " !");
+        double minStep = epsilon != null ? epsilon : 0.001;
+        if (maxStep != null && maxStep < minStep)
+            throw new IllegalArgumentException("Mascot " + MAX_STEP + " " + maxStep +
+                    " must not be smaller than " + EPSILON + " " + minStep + " !");
+        if (implementation != null && !IMPLEMENTATIONS.contains(implementation))
+            throw new IllegalArgumentException("Mascot " + IMPLEMENTATION + " must be one of " +
+                    IMPLEMENTATIONS + ", but it is " + implementation + " !");
+        if (treeLogEvery != null && treeLogEvery < 1)
+            throw new IllegalArgumentException("Mascot " + TREE_LOG_EVERY + " must be positive, but it is " + treeLogEvery + " !");
+        // BEAST Logger takes an int
+        if (treeLogEvery != null && treeLogEvery > Integer.MAX_VALUE)
+            throw new IllegalArgumentException("Mascot " + TREE_LOG_EVERY + " must not exceed " + Integer.MAX_VALUE +
+                    ", but it is " + treeLogEvery + " !");
+        // -1 is full precision
+        if (treeDecimalPlaces != null && treeDecimalPlaces < -1)
+            throw new IllegalArgumentException("Mascot " + TREE_DECIMAL_PLACES + " must be >= -1, but it is " + treeDecimalPlaces + " !");
+    }
+
+    /**
+     * Validate and set the options into the inputs of {@link Mascot}, before its initAndValidate.
+     * Only the options given by the user are set, so the others keep the Mascot defaults.
+     * @param mascot  {@link Mascot}
+     */
+    public void applyTo(Mascot mascot) {
+        validate();
+        if (epsilon != null)
+            mascot.setInputValue(EPSILON, epsilon);
+        if (maxStep != null)
+            mascot.setInputValue(MAX_STEP, maxStep);
+        if (useCache != null)
+            mascot.setInputValue(USE_CACHE, useCache);
+        if (implementation != null)
+            mascot.setInputValue(IMPLEMENTATION, implementation);
+    }
+
+    /**
+     * Validate and set the options of the structured tree logging, before its initAndValidate.
+     * @param structuredTreeLogger {@link StructuredTreeLogger}
+     */
+    public void applyTo(StructuredTreeLogger structuredTreeLogger) {
+        validate();
+        if (treeMaxState != null)
+            structuredTreeLogger.setInputValue("maxState", treeMaxState);
+        if (treeDecimalPlaces != null)
+            structuredTreeLogger.setInputValue("dp", treeDecimalPlaces);
+    }
+
+    /**
+     * @param logEvery  the main log interval
+     * @return the log interval of the structured tree logger, which is independent of the main one if it is set.
+     */
+    public long getTreeLogEvery(long logEvery) {
+        return treeLogEvery != null ? treeLogEvery : logEvery;
+    }
+
+    public Double getEpsilon() {
+        return epsilon;
+    }
+
+    public void setEpsilon(Double epsilon) {
+        this.epsilon = epsilon;
+    }
+
+    public Double getMaxStep() {
+        return maxStep;
+    }
+
+    public void setMaxStep(Double maxStep) {
+        this.maxStep = maxStep;
+    }
+
+    public Boolean getUseCache() {
+        return useCache;
+    }
+
+    public void setUseCache(Boolean useCache) {
+        this.useCache = useCache;
+    }
+
+    public String getImplementation() {
+        return implementation;
+    }
+
+    public void setImplementation(String implementation) {
+        this.implementation = implementation;
+    }
+
+    public Long getTreeLogEvery() {
+        return treeLogEvery;
+    }
+
+    public void setTreeLogEvery(Long treeLogEvery) {
+        this.treeLogEvery = treeLogEvery;
+    }
+
+    public Boolean getTreeMaxState() {
+        return treeMaxState;
+    }
+
+    public void setTreeMaxState(Boolean treeMaxState) {
+        this.treeMaxState = treeMaxState;
+    }
+
+    public Integer getTreeDecimalPlaces() {
+        return treeDecimalPlaces;
+    }
+
+    public void setTreeDecimalPlaces(Integer treeDecimalPlaces) {
+        this.treeDecimalPlaces = treeDecimalPlaces;
+    }
+
+    /**
+     * @param migrationRatesId  the id of the backwards migration rates of a model
+     * @return the adjacency of demes of this model, or null if all demes are connected.
+     */
+    public MigrationAdjacency getMigrationAdjacency(String migrationRatesId) {
+        return migrationAdjacencies.get(migrationRatesId);
+    }
+
+    public void setMigrationAdjacency(String migrationRatesId, MigrationAdjacency migrationAdjacency) {
+        if (migrationAdjacency == null)
+            migrationAdjacencies.remove(migrationRatesId);
+        else
+            migrationAdjacencies.put(migrationRatesId, migrationAdjacency);
+    }
+
+}
@@ -0,0 +1,61 @@
+package mascot.lphybeast.tobeast.generators;
+
+import beast.base.evolution.alignment.TaxonSet;
+import beast.base.evolution.tree.TraitSet;
+import lphybeast.BEASTContext;
+
+import java.util.*;
+import java.util.function.Supplier;
+
+/**
+ * Share the deme {@link TraitSet} and its {@link TaxonSet} between
+ * StructuredCoalescent trees in the same conversion,
+ * if they have identical taxa and deme assignments.
+ * The shared BEAST object will be written once in XML, and referred by idref afterwards.
+ * The cache is per {@link BEASTContext}, and released together with it.
+ */
+public final class DemeTraitSets {
+
+    private record TraitKey(String traitName, String traitValue) { }
+
+    private static class Cache {
+        final Map<TraitKey, TraitSet> traitSets = new HashMap<>();
+        final Map<Set<String>, TaxonSet> taxonSets = new HashMap<>();
+    }
+
+    private static final Map<BEASTContext, Cache> caches = Collections.synchronizedMap(new WeakHashMap<>());
+
+    private DemeTraitSets() { }
+
+    /**
+     * @param traitName   the trait name, e.g. deme
+     * @param traitValue  the id=deme pairs in the order of taxa names,
+     *                    so that the same assignments give the same string.
+     * @param taxaNames   the taxa names
+     * @param taxaCreator create the taxon set if there is no identical one.
+     * @param context     {@link BEASTContext}
+     * @return the shared deme {@link TraitSet}, or a new one.
+     */
+    public static TraitSet getTraitSet(String traitName, String traitValue, Collection<String> taxaNames,
+                                       Supplier<TaxonSet> taxaCreator, BEASTContext context) {
+        Cache cache = caches.computeIfAbsent(context, c -> new Cache());
+        synchronized (cache) {
+            TraitKey key = new TraitKey(traitName, traitValue);
+            TraitSet traitSet = cache.traitSets.get(key);
+            if (traitSet != null)
+                return traitSet;
+
+            TaxonSet taxa = cache.taxonSets.computeIfAbsent(Set.copyOf(taxaNames), names -> taxaCreator.get());
+
+            traitSet = new TraitSet();
+            traitSet.setInputValue("traitname", traitName);
+            traitSet.setInputValue("value", traitValue);
+            traitSet.setInputValue("taxa", taxa);
+            traitSet.initAndValidate();
+
+            cache.traitSets.put(key, traitSet);
+            return traitSet;
+        }
+    }
+
+}
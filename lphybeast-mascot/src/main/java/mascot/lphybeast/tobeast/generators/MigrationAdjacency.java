@@ -0,0 +1,77 @@
+package mascot.lphybeast.tobeast.generators;
+
+import mascot.lphybeast.tobeast.MascotOptions;
+
+/**
+ * The adjacency of demes declared by the user through {@link MascotOptions#MIGRATION_ADJACENCY},
+ * e.g. -Dlphybeast.mascot.migrationAdjacency.m=1,0,1,1,0,1 for the migration rates m,
+ * where 0 means the pair of demes is not connected, so that the backwards migration rate is structurally zero.
+ * The order of indicators is the same as {@link MigrationRateKeys}.
+ * The adjacency does not depend on the values of migration rates,
+ * so it applies to the sampled rates.
+ */
+public final class MigrationAdjacency {
+
+    private final boolean[] indicators;
+    private final int nonZero;
+
+    /**
+     * @param indicators  true if the pair of demes is adjacent, in the order of {@link MigrationRateKeys}
+     */
+    public MigrationAdjacency(boolean[] indicators) {
+        this.indicators = indicators.clone();
+        int count = 0;
+        for (boolean indicator : indicators)
+            if (indicator) count++;
+        if (count == 0)
+            throw new IllegalArgumentException("The migration adjacency must connect at least one pair of demes !");
+        nonZero = count;
+    }
+
+    /**
+     * @param adjacency  0 or 1 per migration rate, separated by commas or spaces
+     * @return the adjacency
+     */
+    public static MigrationAdjacency parse(String adjacency) {
+        String[] values = adjacency.trim().split("[,\\s]+");
+        boolean[] indicators = new boolean[values.length];
+        for (int i = 0; i < values.length; i++) {
+            switch (values[i]) {
+                case "1" -> indicators[i] = true;
+                case "0" -> indicators[i] = false;
+                default -> throw new IllegalArgumentException("The migration adjacency must be 0 or 1, but it is " +
+                        values[i] + " at " + i + " !");
+            }
+        }
+        return new MigrationAdjacency(indicators);
+    }
+
+    /**
+     * @return true, if any migration rate is structurally zero.
+     */
+    public boolean isSparse() {
+        return nonZero < indicators.length;
+    }
+
+    /**
+     * @return the number of non-zero migration rates, which is the number of adjacent pairs.
+     */
+    public int getNonZeroCount() {
+        return nonZero;
+    }
+
+    public int getDimension() {
+        return indicators.length;
+    }
+
+    /**
+     * @return the indicators for BEAST BooleanParameter, where true means the pair is adjacent.
+     */
+    public Boolean[] getIndicators() {
+        Boolean[] ind = new Boolean[indicators.length];
+        for (int i = 0; i < indicators.length; i++)
+            ind[i] = indicators[i];
+        return ind;
+    }
+
+}
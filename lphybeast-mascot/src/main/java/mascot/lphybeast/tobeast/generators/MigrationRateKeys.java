@@ -0,0 +1,123 @@
+package mascot.lphybeast.tobeast.generators;
+
+import beast.base.inference.parameter.RealParameter;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Create the keys of Ne and backwards migration rates in BEAST MASCOT,
+ * e.g. "A B C" for Ne and "A_B A_C B_A B_C C_A C_B" for asymmetric migration rates.
+ * The migration rate keys are built once into a pre-sized buffer,
+ * and cached per list of unique demes, so repeated conversions using the same demes reuse them.
+ */
+public final class MigrationRateKeys {
+
+    // the number of different deme lists to keep
+    static final int CACHE_SIZE = 16;
+
+    private record CacheKey(List<String> uniqueDemes, boolean symmetric) { }
+
+    // least recently used
+    private static final Map<CacheKey, String> cache = Collections.synchronizedMap(
+            new LinkedHashMap<>(CACHE_SIZE, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<CacheKey, String> eldest) {
+                    return size() > CACHE_SIZE;
+                }
+            });
+
+    private MigrationRateKeys() { }
+
+    /**
+     * Attach the keys to a parameter which has been initialised by the core converters.
+     * It only sets the input without calling initAndValidate again,
+     * so neither are the keys parsed twice, nor the values reset to the input values.
+     * The keys are written into XML and parsed once by BEAST.
+     * @param parameter  the initialised {@link RealParameter}
+     * @param keys   the keys separated by a space
+     * @param nKeys  the number of keys, which must equal to the dimension of parameter
+     */
+    public static void attachKeys(RealParameter parameter, String keys, int nKeys) {
+        if (nKeys != parameter.getDimension())
+            throw new IllegalArgumentException("The number of keys " + nKeys + " != " +
+                    parameter.getID() + " dimension " + parameter.getDimension() + " !");
+        parameter.setInputValue("keys", keys);
+    }
+
+    /**
+     * @param uniqueDemes the sorted unique demes
+     * @return the keys of Ne separated by a space
+     */
+    public static String getNeKeys(List<String> uniqueDemes) {
+        return String.join(" ", uniqueDemes);
+    }
+
+    /**
+     * @param n  the number of demes
+     * @param symmetric  if true, then the symmetric migration model
+     * @return the dimension of migration rates,
+     *         asymmetric dimension = n*(n-1), symmetric dimension = n*(n-1)/2
+     */
+    public static int getMigrationRateDimension(int n, boolean symmetric) {
+        return symmetric ? n*(n-1)/2 : n*(n-1);
+    }
+
+    /**
+     * The keys are cached per list of demes.
+     * @param uniqueDemes the sorted unique demes
+     * @param symmetric  if true, then the symmetric migration model
+     * @return the keys of backwards migration rates separated by a space
+     * @see #createMigrationRateKeys(List, boolean)
+     */
+    public static String getMigrationRateKeys(List<String> uniqueDemes, boolean symmetric) {
+        // copy to make sure the key is immutable
+        CacheKey key = new CacheKey(List.copyOf(uniqueDemes), symmetric);
+        return cache.computeIfAbsent(key, k -> createMigrationRateKeys(k.uniqueDemes(), k.symmetric()));
+    }
+
+    /**
+     * Build the keys of backwards migration rates without the cache,
+     * where the key is "from_to" and always backwards from LPhy.
+     * The symmetric model only takes the upper triangle of the matrix.
+     * @param uniqueDemes the sorted unique demes
+     * @param symmetric  if true, then the symmetric migration model
+     * @return the keys of backwards migration rates separated by a space
+     */
+    public static String createMigrationRateKeys(List<String> uniqueDemes, boolean symmetric) {
+        // avoid get(i) in the loop, in case it is a LinkedList
+        List<String> demes = new ArrayList<>(uniqueDemes);
+        final int n = demes.size();
+        StringBuilder builder = new StringBuilder(getKeysLength(demes, symmetric));
+
+        for (int i = 0; i < n; i++) {
+            String from = demes.get(i);
+            for (int j = symmetric ? i + 1 : 0; j < n; j++) {
+                if (i != j) {
+                    if (builder.length() > 0) builder.append(' ');
+                    builder.append(from).append('_').append(demes.get(j));
+                }
+            }
+        }
+        return builder.toString();
+    }
+
+    // the exact length of all keys, including "_" and separators
+    private static int getKeysLength(List<String> demes, boolean symmetric) {
+        final int n = demes.size();
+        if (n < 2)
+            return 0;
+        long totalLength = 0;
+        for (String deme : demes)
+            totalLength += deme.length();
+        // each deme appears (n-1) times as "from" and (n-1) times as "to" in the asymmetric model
+        long keysLength = symmetric ? (n - 1) * totalLength : 2L * (n - 1) * totalLength;
+        int nKeys = getMigrationRateDimension(n, symmetric);
+        // "_" in every key, and spaces between keys
+        return Math.toIntExact(keysLength + nKeys + (nKeys - 1));
+    }
+
+}
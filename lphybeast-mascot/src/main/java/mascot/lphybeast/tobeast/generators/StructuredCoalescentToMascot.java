@@ -3,7 +3,11 @@ package mascot.lphybeast.tobeast.generators;
 import beast.base.core.BEASTInterface;
 import beast.base.evolution.alignment.Taxon;
 import beast.base.evolution.alignment.TaxonSet;
+import beast.base.evolution.operator.kernel.BactrianScaleOperator;
 import beast.base.evolution.tree.TraitSet;
+import beast.base.evolution.tree.Tree;
+import beast.base.inference.Operator;
+import beast.base.inference.parameter.BooleanParameter;
 import beast.base.inference.parameter.RealParameter;
 import lphy.base.evolution.coalescent.StructuredCoalescent;
 import lphy.base.evolution.tree.TimeTree;
@@ -12,12 +16,16 @@ import lphy.base.function.MigrationMatrix;
 import lphy.core.model.Value;
 import lphybeast.BEASTContext;
 import lphybeast.GeneratorToBEAST;
-import lphybeast.tobeast.values.TimeTreeToBEAST;
+import lphybeast.ext.instrument.ConversionInstrument;
 import mascot.distribution.StructuredTreeIntervals;
 import mascot.dynamics.Constant;
+import mascot.dynamics.ConstantBSSVS;
+import mascot.dynamics.Dynamics;
+import mascot.lphybeast.tobeast.MascotOptions;
 import mascot.lphybeast.tobeast.loggers.MascotExtraTreeLogger;
 
-import java.util.Arrays;
+import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.List;
 
 public class StructuredCoalescentToMascot implements
@@ -25,6 +33,13 @@ public class StructuredCoalescentToMascot implements
 
     @Override
     public mascot.distribution.Mascot generatorToBEAST(StructuredCoalescent coalescent, BEASTInterface value, BEASTContext context) {
+        try (ConversionInstrument.Measurement measurement =
+                     ConversionInstrument.start(this, ConversionInstrument.GENERATOR_TO_BEAST, context)) {
+            return createMascot(coalescent, value, context);
+        }
+    }
+
+    private mascot.distribution.Mascot createMascot(StructuredCoalescent coalescent, BEASTInterface value, BEASTContext context) {
 
         mascot.distribution.Mascot mascot = new mascot.distribution.Mascot();
 
@@ -39,88 +54,25 @@ public class StructuredCoalescentToMascot implements
 //            Value<Object[]> demes = coalescent.getDemes();
 
             List<String> uniqueDemes = coalescent.getUniqueDemes();
-            String uniqueDemesStr = Arrays.toString(uniqueDemes.toArray(String[]::new))
-                    .replace(",", "")  //remove the commas
-                    .replace("[", "")  //remove the right bracket
-                    .replace("]", "");  //remove the left bracket
-
-            //*** set keys to log location in names ***//
-
-            BEASTInterface ne =  context.getBEASTObject(NeValue);
-            BEASTInterface bMR =  context.getBEASTObject(backwardsMigrationRates);
-
-            if ( ! ( (ne instanceof RealParameter) || (bMR instanceof RealParameter) ) )
-                throw new IllegalArgumentException("Ne and backwardsMigration have to be KeyRealParameter !");
-            RealParameter neParam =  (RealParameter) ne;
-            RealParameter bMRParam =  (RealParameter) bMR;
-
-            // set keys to Ne
-            if (uniqueDemes.size() != neParam.getDimension())
-                throw new IllegalArgumentException("Ne dimension " + neParam.getDimension() +
-                        " != " + uniqueDemes.size() + " unique demes !");
-            neParam.setInputValue("keys", uniqueDemesStr);
-            neParam.initAndValidate();
-            System.out.println("Assign locations to Ne : " + uniqueDemes);
-
-            // set keys to Migration rates
-            // asymmetric dimension = n*(n-1), symmetric dimension = n*(n-1)/2
-            int n = uniqueDemes.size();
-            String migRatesStr = "";
-            if (bMRParam.getDimension() == n*(n-1)) { // asymmetric
-
-                for(int i = 0; i < uniqueDemes.size(); i++) {
-                    for(int j = 0; j < uniqueDemes.size(); j++) {
-                        if (i != j) {
-                            if (migRatesStr.length() > 1) migRatesStr += " ";
-                            // assuming always backwards from LPhy
-                            migRatesStr += uniqueDemes.get(i) + "_" + uniqueDemes.get(j);
-                        }
-                    }
-                }
-                System.out.println("Assign locations to asymmetric backwards migration rates : " + migRatesStr);
-
-            } else if (bMRParam.getDimension() == n*(n-1)/2) { // symmetric
-
-                for(int i = 0; i < uniqueDemes.size(); i++) {
-                    for(int j = i+1; j < uniqueDemes.size(); j++) {
-                        if (i != j) {
-                            if (migRatesStr.length() > 1) migRatesStr += " ";
-                            // assuming always backwards from LPhy
-                            migRatesStr += uniqueDemes.get(i) + "_" + uniqueDemes.get(j);
-                        }
-                    }
-                }
-                System.out.println("Assign locations to symmetric backwards migration rates : " + migRatesStr);
-
-            } else {
-                throw new IllegalArgumentException("Migration rates dimension " + bMRParam.getDimension() +
-                        " does not equal to either asymmetric model " + n*(n-1) +
-                        " or symmetric model " + (n*(n-1)/2) + " !");
-            }
-            bMRParam.setInputValue("keys", migRatesStr);
-            bMRParam.initAndValidate();
-
-            Constant dynamics = new Constant();
-            dynamics.setInputValue("Ne", neParam);
-            dynamics.setInputValue("backwardsMigration", bMRParam);
+            MascotOptions options = MascotOptions.fromSystemProperties();
+
+            // the adjacency belongs to this model, which is keyed by the id of its migration rates
+            Dynamics dynamics = createConstantDynamics(NeValue, backwardsMigrationRates, uniqueDemes,
+                    options.getMigrationAdjacency(backwardsMigrationRates.getId()), context);
             dynamics.setInputValue("dimension", NeValue.value().length);
 
             String popLabel = coalescent.getPopulationLabel();
 
             TimeTree timeTree = ((Value<TimeTree>)context.getGraphicalModelNode(value)).value();
-            String traitStr = createTraitString(timeTree, popLabel);
-            List<Taxon> taxonList = context.createTaxonList(TimeTreeToBEAST.getTaxaNames(timeTree));
-
-            TraitSet traitSet = new TraitSet();
-            traitSet.setInputValue("traitname", popLabel);
-            traitSet.setInputValue("value", traitStr);
+            // only iterate leaves, and sort them by id, so identical deme assignments give the same string
+            List<TimeTreeNode> leaves = new ArrayList<>(timeTree.getRoot().getAllLeafNodes());
+            leaves.sort(Comparator.comparing(TimeTreeNode::getId));
+            String traitStr = createTraitString(leaves, popLabel);
+            List<String> taxaNames = getTaxaNames(leaves);
 
-            TaxonSet taxa = new TaxonSet();
-            taxa.setInputValue("taxon", taxonList);
-            taxa.initAndValidate();
-
-            traitSet.setInputValue("taxa", taxa);
-            traitSet.initAndValidate();
+            // shared by the trees having the same taxa and demes
+            TraitSet traitSet = DemeTraitSets.getTraitSet(popLabel, traitStr, taxaNames,
+                    () -> getTaxonSet((Tree) value, taxaNames, context), context);
 
             dynamics.setInputValue("typeTrait", traitSet);
             dynamics.initAndValidate();
@@ -133,6 +85,8 @@ public class StructuredCoalescentToMascot implements
 
             mascot.setInputValue("structuredTreeIntervals", structuredTreeIntervals);
             mascot.setInputValue("tree", value);
+            // ODE step size, max step, cache and implementation
+            options.applyTo(mascot);
 
             mascot.initAndValidate();
 
@@ -151,17 +105,144 @@ public class StructuredCoalescentToMascot implements
         throw new RuntimeException("Can't convert StructuredCoalescent unless MigrationMatrix function is used to form M matrix");
     }
 
-    private String createTraitString(TimeTree tree, String traitName) {
-        StringBuilder builder = new StringBuilder();
-        int leafCount = 0;
-        for (TimeTreeNode node : tree.getNodes()) {
-            if (node.isLeaf()) {
-                if (leafCount > 0) builder.append(", ");
-                builder.append(node.getId());
-                builder.append("=");
-                builder.append(node.getMetaData(traitName));
-                leafCount += 1;
-            }
+    /**
+     * Mascot {@link Constant} dynamics using Ne and backwards migration rates,
+     * which are keyed by demes for logging.
+     * If the adjacency has structurally zero rates, then it is {@link ConstantBSSVS} with fixed indicators.
+     */
+    private Dynamics createConstantDynamics(Value<Double[]> NeValue, Value<Double[]> backwardsMigrationRates,
+                                            List<String> uniqueDemes, MigrationAdjacency adjacency,
+                                            BEASTContext context) {
+        //*** set keys to log location in names ***//
+
+        BEASTInterface ne =  context.getBEASTObject(NeValue);
+        BEASTInterface bMR =  context.getBEASTObject(backwardsMigrationRates);
+
+        if ( ! ( (ne instanceof RealParameter) || (bMR instanceof RealParameter) ) )
+            throw new IllegalArgumentException("Ne and backwardsMigration have to be KeyRealParameter !");
+        RealParameter neParam =  (RealParameter) ne;
+        RealParameter bMRParam =  (RealParameter) bMR;
+
+        // set keys to Ne
+        if (uniqueDemes.size() != neParam.getDimension())
+            throw new IllegalArgumentException("Ne dimension " + neParam.getDimension() +
+                    " != " + uniqueDemes.size() + " unique demes !");
+        MigrationRateKeys.attachKeys(neParam, MigrationRateKeys.getNeKeys(uniqueDemes), uniqueDemes.size());
+        ConversionInstrument.message(this, () -> "Assign locations to Ne : " + uniqueDemes);
+
+        // set keys to Migration rates
+        // asymmetric dimension = n*(n-1), symmetric dimension = n*(n-1)/2
+        int n = uniqueDemes.size();
+        String migRatesStr;
+        if (bMRParam.getDimension() == MigrationRateKeys.getMigrationRateDimension(n, false)) { // asymmetric
+
+            migRatesStr = MigrationRateKeys.getMigrationRateKeys(uniqueDemes, false);
+            ConversionInstrument.message(this, () -> "Assign locations to asymmetric backwards migration rates : " + migRatesStr);
+
+        } else if (bMRParam.getDimension() == MigrationRateKeys.getMigrationRateDimension(n, true)) { // symmetric
+
+            migRatesStr = MigrationRateKeys.getMigrationRateKeys(uniqueDemes, true);
+            ConversionInstrument.message(this, () -> "Assign locations to symmetric backwards migration rates : " + migRatesStr);
+
+        } else {
+            throw new IllegalArgumentException("Migration rates dimension " + bMRParam.getDimension() +
+                    " does not equal to either asymmetric model " + n*(n-1) +
+                    " or symmetric model " + (n*(n-1)/2) + " !");
+        }
+        // the dimension is validated above
+        MigrationRateKeys.attachKeys(bMRParam, migRatesStr, bMRParam.getDimension());
+
+        // structurally zero rates, e.g. non-adjacent demes, are switched off by fixed indicators
+        if (adjacency != null && adjacency.getDimension() != bMRParam.getDimension())
+            throw new IllegalArgumentException("Migration adjacency dimension " + adjacency.getDimension() +
+                    " != migration rates dimension " + bMRParam.getDimension() + " !");
+        if (adjacency != null && adjacency.isSparse()) {
+            ConversionInstrument.message(this, () -> "Assign " + adjacency.getNonZeroCount() + " of " +
+                    adjacency.getDimension() + " backwards migration rates to adjacent demes");
+            return createSparseDynamics(neParam, bMRParam, adjacency, context);
+        }
+        Constant dynamics = new Constant();
+        dynamics.setInputValue("Ne", neParam);
+        dynamics.setInputValue("backwardsMigration", bMRParam);
+        return dynamics;
+    }
+
+    /**
+     * Mascot {@link ConstantBSSVS} dynamics with fixed indicators, which are not in the state,
+     * so that the structurally zero migration rates are excluded from the likelihood calculation.
+     * The default operator on the migration rates is replaced by a scale operator restricted to
+     * the adjacent pairs, so the structurally zero rates stay at their initial values.
+     */
+    private Dynamics createSparseDynamics(RealParameter neParam, RealParameter bMRParam,
+                                          MigrationAdjacency adjacency, BEASTContext context) {
+        BooleanParameter indicators = new BooleanParameter(adjacency.getIndicators());
+        indicators.setID(bMRParam.getID() + ".indicators");
+
+        ConstantBSSVS dynamics = new ConstantBSSVS();
+        dynamics.setInputValue("Ne", neParam);
+        dynamics.setInputValue("backwardsMigration", bMRParam);
+        dynamics.setInputValue("indicators", indicators);
+        // fixed to 1, so rates are unscaled
+        dynamics.setInputValue("migrationClock", BEASTContext.createRealParameter(1.0));
+
+        context.addSkipOperator(bMRParam);
+        context.addExtraOperator(createAdjacentRatesOperator(bMRParam, indicators, adjacency));
+        return dynamics;
+    }
+
+    // only scale the rates whose indicators are true
+    private Operator createAdjacentRatesOperator(RealParameter bMRParam, BooleanParameter indicators,
+                                                 MigrationAdjacency adjacency) {
+        Operator operator = new BactrianScaleOperator();
+        operator.setInputValue("parameter", bMRParam);
+        operator.setInputValue("indicator", indicators);
+        operator.setInputValue("scaleFactor", 0.75);
+        operator.setInputValue("weight", BEASTContext.getOperatorWeight(adjacency.getNonZeroCount()));
+        operator.initAndValidate();
+        operator.setID(bMRParam.getID() + ".scale");
+        return operator;
+    }
+
+    /**
+     * Reuse the taxon set of the BEAST tree if it has one covering all leaves,
+     * otherwise create it from the taxa registered in {@link BEASTContext}.
+     */
+    private TaxonSet getTaxonSet(Tree tree, List<String> taxaNames, BEASTContext context) {
+        TaxonSet taxa = tree.getTaxonset();
+        if (taxa != null && taxa.getTaxonCount() == taxaNames.size())
+            return taxa;
+
+        List<Taxon> taxonList = context.createTaxonList(taxaNames);
+
+        taxa = new TaxonSet();
+        taxa.setInputValue("taxon", taxonList);
+        taxa.initAndValidate();
+        return taxa;
+    }
+
+    private List<String> getTaxaNames(List<TimeTreeNode> leaves) {
+        List<String> taxaNames = new ArrayList<>(leaves.size());
+        for (TimeTreeNode leaf : leaves)
+            taxaNames.add(leaf.getId());
+        return taxaNames;
+    }
+
+    // id=deme pairs, which are parsed by TraitSet
+    private String createTraitString(List<TimeTreeNode> leaves, String traitName) {
+        String[] demes = new String[leaves.size()];
+        int length = 0;
+        for (int i = 0; i < demes.length; i++) {
+            demes[i] = String.valueOf(leaves.get(i).getMetaData(traitName));
+            // id + "=" + deme + ", "
+            length += leaves.get(i).getId().length() + demes[i].length() + 3;
+        }
+
+        StringBuilder builder = new StringBuilder(length);
+        for (int i = 0; i < demes.length; i++) {
+            if (i > 0) builder.append(", ");
+            builder.append(leaves.get(i).getId());
+            builder.append("=");
+            builder.append(demes[i]);
         }
         return builder.toString();
     }
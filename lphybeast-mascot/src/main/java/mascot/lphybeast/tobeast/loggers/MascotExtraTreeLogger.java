@@ -7,6 +7,7 @@ import com.google.common.collect.Multimap;
 import lphy.core.model.GraphicalModelNode;
 import lphybeast.tobeast.loggers.TreeLoggerHelper;
 import mascot.distribution.Mascot;
+import mascot.lphybeast.tobeast.MascotOptions;
 import mascot.logger.StructuredTreeLogger;
 
 /**
@@ -29,10 +30,13 @@ public class MascotExtraTreeLogger implements TreeLoggerHelper {
         StructuredTreeLogger structuredTreeLogger = new StructuredTreeLogger();
         // not logging tree directly
         structuredTreeLogger.setInputValue("mascot", mascot);
+        // reduce the file size, such as only logging the most probable deme
+        MascotOptions options = MascotOptions.fromSystemProperties();
+        options.applyTo(structuredTreeLogger);
 
         Logger logger = new Logger();
-        // must convert to int
-        logger.setInputValue("logEvery", Math.toIntExact(logEvery));
+        // must convert to int, which can be independent of the main logEvery
+        logger.setInputValue("logEvery", Math.toIntExact(options.getTreeLogEvery(logEvery)));
         logger.setInputValue("log", structuredTreeLogger);
 
         logger.setInputValue("fileName", getFileName());
@@ -0,0 +1,51 @@
+package mascot.lphybeast.tobeast.generators;
+
+import beast.base.inference.parameter.RealParameter;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * The Ne and migration-rate keys of Mascot, in the order of the deme pairs.
+ */
+public class MigrationRateKeysTest {
+
+    private final List<String> uniqueDemes = List.of("Hong_Kong", "New_York", "New_Zealand");
+
+    @Test
+    public void testMigrationRateKeys() {
+        assertEquals("Hong_Kong New_York New_Zealand", MigrationRateKeys.getNeKeys(uniqueDemes));
+        assertEquals("Hong_Kong_New_York Hong_Kong_New_Zealand New_York_Hong_Kong " +
+                "New_York_New_Zealand New_Zealand_Hong_Kong New_Zealand_New_York",
+                MigrationRateKeys.getMigrationRateKeys(uniqueDemes, false), "asymmetric");
+        assertEquals("Hong_Kong_New_York Hong_Kong_New_Zealand New_York_New_Zealand",
+                MigrationRateKeys.getMigrationRateKeys(uniqueDemes, true), "symmetric");
+        // cached
+        assertSame(MigrationRateKeys.getMigrationRateKeys(uniqueDemes, false),
+                MigrationRateKeys.getMigrationRateKeys(List.copyOf(uniqueDemes), false));
+    }
+
+    @Test
+    public void testAttachKeys() {
+        RealParameter m = new RealParameter(new Double[]{0.1, 0.2, 0.3, 0.4, 0.5, 0.6});
+        m.setID("m");
+        // the value is changed after initialisation, which must be kept
+        m.setValue(2, 3.0);
+
+        String keys = MigrationRateKeys.getMigrationRateKeys(uniqueDemes, false);
+        MigrationRateKeys.attachKeys(m, keys, MigrationRateKeys.getMigrationRateDimension(uniqueDemes.size(), false));
+
+        assertEquals(6, m.getDimension(), "dimension");
+        assertArrayEquals(new Double[]{0.1, 0.2, 3.0, 0.4, 0.5, 0.6}, m.getValues(), "values");
+        assertEquals(keys, m.getInput("keys").get(), "keys");
+
+        RealParameter theta = new RealParameter(new Double[]{1.0, 2.0});
+        theta.setID("Theta");
+        assertThrows(IllegalArgumentException.class, () ->
+                MigrationRateKeys.attachKeys(theta, MigrationRateKeys.getNeKeys(uniqueDemes), uniqueDemes.size()));
+        assertArrayEquals(new Double[]{1.0, 2.0}, theta.getValues(), "values");
+    }
+
+}
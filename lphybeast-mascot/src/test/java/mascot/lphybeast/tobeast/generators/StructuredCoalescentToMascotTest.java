@@ -0,0 +1,200 @@
+package mascot.lphybeast.tobeast.generators;
+
+import lphy.core.io.UserDir;
+import lphybeast.TestUtils;
+import mascot.lphybeast.tobeast.MascotOptions;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Check the XML of Mascot dynamics converted from a simulated StructuredCoalescent.
+ */
+public class StructuredCoalescentToMascotTest {
+
+    private final String structuredCoalescent = """
+            Θ ~ LogNormal(meanlog=0.0, sdlog=1.0, replicates=3);
+            m ~ Exp(mean=1.0, replicates=6);
+            M = migrationMatrix(theta=Θ, m=m);
+            ψ ~ StructuredCoalescent(M=M, k=[4, 4, 4], sort=true);
+            D ~ PhyloCTMC(L=50, Q=jukesCantor(), mu=0.01, tree=ψ);""";
+
+    // two trees having the same taxa and demes
+    private final String twoTrees = """
+            Θ ~ LogNormal(meanlog=0.0, sdlog=1.0, replicates=3);
+            m ~ Exp(mean=1.0, replicates=6);
+            M = migrationMatrix(theta=Θ, m=m);
+            ψ1 ~ StructuredCoalescent(M=M, k=[4, 4, 4], sort=true);
+            ψ2 ~ StructuredCoalescent(M=M, k=[4, 4, 4], sort=true);
+            D1 ~ PhyloCTMC(L=50, Q=jukesCantor(), mu=0.01, tree=ψ1);
+            D2 ~ PhyloCTMC(L=50, Q=jukesCantor(), mu=0.01, tree=ψ2);""";
+
+    @BeforeEach
+    public void setUp() {
+        // load ../LPhyBeast/version.xml
+        Path lphybeastDir = Paths.get(UserDir.getUserDir().toAbsolutePath().getParent().toString(),
+                "..","LPhyBeast");
+        if (!Files.exists(lphybeastDir))
+            throw new IllegalArgumentException("Cannot locate LPhyBeast Dir : " + lphybeastDir);
+
+        TestUtils.loadServices(lphybeastDir.toString());
+        // load mascot/version.xml
+        Path parentDir = UserDir.getUserDir().toAbsolutePath();
+        TestUtils.loadServices(parentDir.toString());
+    }
+
+    @AfterEach
+    public void tearDown() {
+        System.clearProperty(MascotOptions.PREFIX + MascotOptions.MIGRATION_ADJACENCY + ".m");
+        System.clearProperty(MascotOptions.PREFIX + MascotOptions.MIGRATION_ADJACENCY + ".m2");
+        System.clearProperty(MascotOptions.PREFIX + MascotOptions.IMPLEMENTATION);
+        System.clearProperty(MascotOptions.PREFIX + MascotOptions.TREE_LOG_EVERY);
+        System.clearProperty(MascotOptions.PREFIX + MascotOptions.TREE_MAX_STATE);
+        System.clearProperty(MascotOptions.PREFIX + MascotOptions.TREE_DECIMAL_PLACES);
+    }
+
+    @Test
+    public void testConstantDynamics() {
+        String xml = TestUtils.lphyScriptToBEASTXML(structuredCoalescent, "constantDynamics");
+
+        assertTrue(xml.contains("spec=\"mascot.dynamics.Constant\"") && xml.contains("backwardsMigration=\"@m\""),
+                "Constant dynamics");
+        assertFalse(xml.contains("ConstantBSSVS"), "all demes are connected");
+    }
+
+    @Test
+    public void testDemeTraitSet() {
+        String xml = TestUtils.lphyScriptToBEASTXML(structuredCoalescent, "demeTraitSet");
+
+        Matcher trait = Pattern.compile("<[^>]*traitname=\"deme\"[^>]*>").matcher(xml);
+        assertTrue(trait.find(), "deme TraitSet");
+        Matcher value = Pattern.compile("value=\"([^\"]*)\"").matcher(trait.group());
+        assertTrue(value.find(), "deme TraitSet value");
+        // only the 12 leaves are assigned to demes
+        assertEquals(12, value.group(1).split(",").length, "leaves only");
+    }
+
+    @Test
+    public void testStructuredTreeLogger() {
+        System.setProperty(MascotOptions.PREFIX + MascotOptions.TREE_LOG_EVERY, "2000");
+        System.setProperty(MascotOptions.PREFIX + MascotOptions.TREE_MAX_STATE, "true");
+        System.setProperty(MascotOptions.PREFIX + MascotOptions.TREE_DECIMAL_PLACES, "4");
+        String xml = TestUtils.lphyScriptToBEASTXML(structuredCoalescent, "structuredTreeLogger");
+
+        Matcher logger = Pattern.compile("<logger[^>]*id=\"StructuredTreeLoggerpsi\"[^>]*>").matcher(xml);
+        assertTrue(logger.find(), "StructuredTreeLogger");
+        assertTrue(logger.group().contains("logEvery=\"2000\""), "independent log interval");
+        assertTrue(xml.contains("maxState=\"true\"") && xml.contains("dp=\"4\""), "reduced annotation");
+    }
+
+    @Test
+    public void testMigrationAdjacency() {
+        // the 2nd and 5th pairs are not adjacent
+        System.setProperty(MascotOptions.PREFIX + MascotOptions.MIGRATION_ADJACENCY + ".m", "1,0,1,1,0,1");
+        String xml = TestUtils.lphyScriptToBEASTXML(structuredCoalescent, "migrationAdjacency");
+
+        assertTrue(xml.contains("spec=\"mascot.dynamics.ConstantBSSVS\""), "ConstantBSSVS dynamics");
+        assertTrue(xml.contains("id=\"m.indicators\"") && xml.contains("true false true true false true"),
+                "fixed indicators");
+        // Mascot default implementation
+        assertFalse(xml.contains("implementation="), "default implementation");
+        // the indicators are fixed, not sampled
+        assertFalse(xml.matches("(?s).*<stateNode[^>]*id=\"m.indicators\".*"), "indicators not in the state");
+
+        // the rates keep the full dimension
+        Matcher m = Pattern.compile("<parameter[^>]*id=\"m\"[^>]*>([^<]*)<").matcher(xml);
+        assertTrue(m.find(), "migration rates");
+        assertEquals(6, m.group(1).trim().split("\\s+").length, "migration rates dimension");
+        // only one operator on the rates, which is restricted to the adjacent pairs
+        Matcher ops = Pattern.compile("<operator[^>]*parameter=\"@m\"[^>]*>").matcher(xml);
+        assertTrue(ops.find(), "operator on migration rates");
+        assertTrue(ops.group().contains("indicator=\"@m.indicators\""), "operator restricted by indicators");
+        assertFalse(ops.find(), "1 operator on migration rates");
+
+        // the dense model has the same number of operators
+        System.clearProperty(MascotOptions.PREFIX + MascotOptions.MIGRATION_ADJACENCY + ".m");
+        String denseXml = TestUtils.lphyScriptToBEASTXML(structuredCoalescent, "denseMigration");
+        assertEquals(denseXml.split("<operator", -1).length, xml.split("<operator", -1).length, "operators");
+    }
+
+    @Test
+    public void testMigrationAdjacencyPerModel() {
+        // 3 demes and 2 demes, where only the 1st model has non-adjacent demes
+        String twoModels = """
+                Θ ~ LogNormal(meanlog=0.0, sdlog=1.0, replicates=3);
+                m ~ Exp(mean=1.0, replicates=6);
+                M = migrationMatrix(theta=Θ, m=m);
+                ψ ~ StructuredCoalescent(M=M, k=[4, 4, 4], sort=true);
+                Θ2 ~ LogNormal(meanlog=0.0, sdlog=1.0, replicates=2);
+                m2 ~ Exp(mean=1.0, replicates=2);
+                M2 = migrationMatrix(theta=Θ2, m=m2);
+                ψ2 ~ StructuredCoalescent(M=M2, k=[4, 4], sort=true);
+                D ~ PhyloCTMC(L=50, Q=jukesCantor(), mu=0.01, tree=ψ);
+                D2 ~ PhyloCTMC(L=50, Q=jukesCantor(), mu=0.01, tree=ψ2);""";
+        System.setProperty(MascotOptions.PREFIX + MascotOptions.MIGRATION_ADJACENCY + ".m", "1,0,1,1,0,1");
+        String xml = TestUtils.lphyScriptToBEASTXML(twoModels, "migrationAdjacencyPerModel");
+
+        assertEquals(1, xml.split("spec=\"mascot.dynamics.ConstantBSSVS\"", -1).length - 1, "1 sparse model");
+        assertTrue(xml.contains("backwardsMigration=\"@m2\"") && !xml.contains("m2.indicators"), "dense model");
+    }
+
+    @Test
+    public void testImplementation() {
+        // the user's implementation is applied to the dense dynamics
+        System.setProperty(MascotOptions.PREFIX + MascotOptions.IMPLEMENTATION, "java");
+        String xml = TestUtils.lphyScriptToBEASTXML(structuredCoalescent, "javaImplementation");
+        assertTrue(xml.contains("implementation=\"java\""), "java implementation");
+
+        // and to the sparse dynamics, since every implementation takes the indicators
+        System.setProperty(MascotOptions.PREFIX + MascotOptions.MIGRATION_ADJACENCY + ".m", "1,0,1,1,0,1");
+        xml = TestUtils.lphyScriptToBEASTXML(structuredCoalescent, "sparseJavaImplementation");
+        assertTrue(xml.contains("spec=\"mascot.dynamics.ConstantBSSVS\"") &&
+                xml.contains("implementation=\"java\""), "java implementation of sparse dynamics");
+    }
+
+    @Test
+    public void testIntegerOptions() {
+        System.setProperty(MascotOptions.PREFIX + MascotOptions.TREE_LOG_EVERY, " 2000 ");
+        System.setProperty(MascotOptions.PREFIX + MascotOptions.TREE_DECIMAL_PLACES, "4");
+        MascotOptions options = MascotOptions.fromSystemProperties();
+        assertEquals(2000L, options.getTreeLogEvery());
+        assertEquals(4, options.getTreeDecimalPlaces());
+
+        // non-integral values are rejected, rather than truncated
+        System.setProperty(MascotOptions.PREFIX + MascotOptions.TREE_LOG_EVERY, "1.5");
+        assertThrows(IllegalArgumentException.class, MascotOptions::fromSystemProperties);
+        System.setProperty(MascotOptions.PREFIX + MascotOptions.TREE_LOG_EVERY, "2000");
+        System.setProperty(MascotOptions.PREFIX + MascotOptions.TREE_DECIMAL_PLACES, "4.9");
+        assertThrows(IllegalArgumentException.class, MascotOptions::fromSystemProperties);
+    }
+
+    @Test
+    public void testSharedTraitSet() {
+        String xml = TestUtils.lphyScriptToBEASTXML(twoTrees, "sharedTraitSet");
+
+        assertEquals(2, xml.split("spec=\"mascot.distribution.Mascot\"", -1).length - 1, "2 Mascot");
+        // 1 deme TraitSet defined, and referred by the 2nd dynamics
+        assertEquals(1, xml.split("traitname=\"deme\"", -1).length - 1, "1 TraitSet");
+        assertTrue(xml.contains("<typeTrait idref=\"") || xml.contains("typeTrait=\"@"), "TraitSet idref");
+    }
+
+    @Test
+    public void testParseMigrationAdjacency() {
+        MigrationAdjacency adjacency = MigrationAdjacency.parse("1 0 1, 1,0,1");
+        assertTrue(adjacency.isSparse());
+        assertEquals(4, adjacency.getNonZeroCount());
+        assertEquals(6, adjacency.getDimension());
+
+        assertThrows(IllegalArgumentException.class, () -> MigrationAdjacency.parse("1,2,1"));
+        assertThrows(IllegalArgumentException.class, () -> MigrationAdjacency.parse("0,0"));
+    }
+
+}
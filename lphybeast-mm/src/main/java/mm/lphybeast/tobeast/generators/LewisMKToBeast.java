@@ -4,13 +4,45 @@ import beast.base.core.BEASTInterface;
 import lphy.base.evolution.substitutionmodel.LewisMK;
 import lphybeast.BEASTContext;
 import lphybeast.GeneratorToBEAST;
+import lphybeast.ext.instrument.ConversionInstrument;
 
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+/**
+ * The partitions with the same number of states share one LewisMK per conversion,
+ * so that BEAST keeps one eigen-decomposition for them, and XML refers it by idref.
+ * Use -Dlphybeast.mm.shareLewisMK=false to create one LewisMK per partition.
+ */
 public class LewisMKToBeast implements GeneratorToBEAST<LewisMK, morphmodels.evolution.substitutionmodel.LewisMK> {
+
+    public static final String SHARE_LEWIS_MK = "lphybeast.mm.shareLewisMK";
+
+    // BEASTContext -> the number of states -> LewisMK
+    private static final Map<BEASTContext, Map<Integer, morphmodels.evolution.substitutionmodel.LewisMK>> lewisMKs =
+            Collections.synchronizedMap(new WeakHashMap<>());
+
     @Override
     public morphmodels.evolution.substitutionmodel.LewisMK generatorToBEAST(LewisMK lewisMK, BEASTInterface value, BEASTContext context) {
+        try (ConversionInstrument.Measurement measurement =
+                     ConversionInstrument.start(this, ConversionInstrument.GENERATOR_TO_BEAST, context)) {
+            int numStates = lewisMK.getNumStates().value();
+            if (!Boolean.parseBoolean(System.getProperty(SHARE_LEWIS_MK, "true")))
+                return createLewisMK(numStates);
+
+            Map<Integer, morphmodels.evolution.substitutionmodel.LewisMK> lewisMKByStates =
+                    lewisMKs.computeIfAbsent(context, c -> new HashMap<>());
+            synchronized (lewisMKByStates) {
+                return lewisMKByStates.computeIfAbsent(numStates, LewisMKToBeast::createLewisMK);
+            }
+        }
+    }
 
+    private static morphmodels.evolution.substitutionmodel.LewisMK createLewisMK(int numStates) {
         morphmodels.evolution.substitutionmodel.LewisMK beastLewisMK = new morphmodels.evolution.substitutionmodel.LewisMK();
-        beastLewisMK.setInputValue("stateNumber", lewisMK.getNumStates().value());
+        beastLewisMK.setInputValue("stateNumber", numStates);
         beastLewisMK.initAndValidate();
         return beastLewisMK;
     }
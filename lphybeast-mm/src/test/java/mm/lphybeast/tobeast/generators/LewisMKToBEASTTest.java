@@ -9,6 +9,7 @@ import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 
@@ -24,6 +25,14 @@ public class LewisMKToBEASTTest {
             Q = lewisMK(numStates=%2$s);
             D ~ PhyloCTMC(L=20, Q=Q, tree=ψ, dataType=standard(%2$s));""";
 
+    private String twoPartitions = """
+            Θ ~ LogNormal(meanlog=3.0, sdlog=1.0);
+            ψ ~ Coalescent(n=16, theta=Θ);
+            Q1 = lewisMK(numStates=3);
+            Q2 = lewisMK(numStates=3);
+            D1 ~ PhyloCTMC(L=20, Q=Q1, tree=ψ, dataType=standard(3));
+            D2 ~ PhyloCTMC(L=10, Q=Q2, tree=ψ, dataType=standard(3));""";
+
 
     @BeforeEach
     public void setUp() {
@@ -61,4 +70,15 @@ public class LewisMKToBEASTTest {
         assertTrue(xml.contains("<populationModel") && xml.contains("popSize=\"@Theta\""), "popSize" );
     }
 
-}
\ No newline at end of file
+    @Test
+    public void testSharedLewisMK() {
+        String xml = TestUtils.lphyScriptToBEASTXML(twoPartitions, "twoPartitions");
+
+        // 1 LewisMK shared by 2 partitions having the same number of states
+        assertEquals(1, xml.split("spec=\"morphmodels.evolution.substitutionmodel.LewisMK\"", -1).length - 1,
+                "1 LewisMK");
+        assertEquals(2, xml.split("<distribution[^>]+TreeLikelihood", -1).length - 1, "2 tree likelihoods");
+        assertTrue(xml.contains("<substModel idref=\"") || xml.contains("substModel=\"@"), "LewisMK idref");
+    }
+
+}
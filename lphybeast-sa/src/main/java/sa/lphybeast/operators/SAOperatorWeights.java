@@ -0,0 +1,88 @@
+package sa.lphybeast.operators;
+
+import beast.base.evolution.tree.Node;
+import beast.base.evolution.tree.Tree;
+import beast.base.inference.Operator;
+import sa.evolution.operators.LeafToSampledAncestorJump;
+import sa.evolution.operators.SAExchange;
+import sa.evolution.operators.SAUniform;
+import sa.evolution.operators.SAWilsonBalding;
+
+import java.util.List;
+
+import static lphybeast.BEASTContext.getOperatorWeight;
+
+/**
+ * The size-aware weights of sampled-ancestor tree operators.
+ * The moves which add, remove or relocate fossils get more weight,
+ * when the tree has more fossil tips and sampled ancestors,
+ * and the exchange moves which mostly rearrange the extant topology get less.
+ * The tree scale and root height operators keep the default weights.
+ */
+public final class SAOperatorWeights {
+
+    // the tolerance to decide a tip is a fossil, not sampled at the present
+    public static final double FOSSIL_HEIGHT_TOLERANCE = 1e-10;
+
+    private SAOperatorWeights() { }
+
+    /**
+     * The size of a sampled-ancestor tree.
+     * @param leafCount          the number of leaf nodes, including sampled ancestors
+     * @param fossilTipCount     the number of fossils at tips, which are not sampled ancestors
+     * @param directAncestorCount  the number of sampled ancestors
+     */
+    public record SATreeSize(int leafCount, int fossilTipCount, int directAncestorCount) {
+
+        public static SATreeSize of(Tree tree) {
+            int fossilTips = 0;
+            int directAncestors = 0;
+            for (Node leaf : tree.getExternalNodes()) {
+                if (leaf.isDirectAncestor())
+                    directAncestors++;
+                else if (leaf.getHeight() > FOSSIL_HEIGHT_TOLERANCE)
+                    fossilTips++;
+            }
+            return new SATreeSize(tree.getLeafNodeCount(), fossilTips, directAncestors);
+        }
+
+        public int getFossilCount() {
+            return fossilTipCount + directAncestorCount;
+        }
+
+        /**
+         * @return the proportion of fossils (tips and sampled ancestors) in all leaves.
+         */
+        public double getFossilFraction() {
+            return leafCount > 0 ? (double) getFossilCount() / leafCount : 0;
+        }
+    }
+
+    /**
+     * Scale the weights of sampled-ancestor operators by the size of the given tree.
+     * {@link LeafToSampledAncestorJump} takes the default weight of the number of fossils,
+     * {@link SAWilsonBalding} and {@link SAUniform} are multiplied by 1 + fossil fraction,
+     * and {@link SAExchange} is multiplied by 1 - fossil fraction / 2.
+     * @param operators  the operators of the tree
+     * @param tree       the BEAST tree
+     * @return the size of the tree
+     */
+    public static SATreeSize reweight(List<Operator> operators, Tree tree) {
+        SATreeSize size = SATreeSize.of(tree);
+        double fossilFraction = size.getFossilFraction();
+        for (Operator operator : operators) {
+            if (operator instanceof LeafToSampledAncestorJump)
+                setWeight(operator, getOperatorWeight(Math.max(1, size.getFossilCount())));
+            else if (operator instanceof SAWilsonBalding || operator instanceof SAUniform)
+                setWeight(operator, operator.getWeight() * (1 + fossilFraction));
+            else if (operator instanceof SAExchange)
+                setWeight(operator, operator.getWeight() * (1 - fossilFraction / 2));
+        }
+        return size;
+    }
+
+    private static void setWeight(Operator operator, double weight) {
+        operator.setInputValue("weight", weight);
+    }
+
+}
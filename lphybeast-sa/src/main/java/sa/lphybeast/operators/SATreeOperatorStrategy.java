@@ -1,22 +1,23 @@
 package sa.lphybeast.operators;
 
-import beast.base.core.BEASTInterface;
 import beast.base.evolution.operator.SubtreeSlide;
 import beast.base.evolution.tree.Tree;
 import beast.base.inference.Operator;
+import beast.pkgmgmt.BEASTClassLoader;
 import lphy.base.evolution.birthdeath.FossilBirthDeathTree;
 import lphy.base.evolution.birthdeath.SimFBDAge;
 import lphy.base.evolution.birthdeath.SimFossilsPoisson;
-import lphy.base.evolution.tree.TimeTree;
-import lphy.core.model.GraphicalModelNode;
+import lphy.core.model.Generator;
 import lphy.core.model.Value;
 import lphybeast.BEASTContext;
+import lphybeast.ext.instrument.ConversionInstrument;
 import lphybeast.tobeast.operators.TreeOperatorStrategy;
 import sa.evolution.operators.*;
+import sa.lphybeast.tobeast.SAOptions;
 
 import java.util.ArrayList;
 import java.util.List;
-import java.util.Map;
+import java.util.Set;
 
 import static lphybeast.BEASTContext.getOperatorWeight;
 
@@ -26,33 +27,81 @@ import static lphybeast.BEASTContext.getOperatorWeight;
  */
 public class SATreeOperatorStrategy implements TreeOperatorStrategy {
 
+    // the generators of sampled-ancestor trees, which this strategy owns
+    private static final Set<Class<? extends Generator>> GENERATOR_CLASSES = Set.of(
+            SimFBDAge.class,  // simFBDAge.lphy
+            FossilBirthDeathTree.class,  // simFossilsCompact.lphy
+            SimFossilsPoisson.class);  // simFossils.lphy
+
+    private static final ClassValue<Boolean> IS_SA_TREE_GENERATOR = new ClassValue<>() {
+        @Override
+        protected Boolean computeValue(Class<?> type) {
+            for (Class<? extends Generator> generatorClass : GENERATOR_CLASSES) {
+                if (generatorClass.isAssignableFrom(type))
+                    return true;
+            }
+            return false;
+        }
+    };
+
+    public static final String ADAPTABLE_OPERATOR_SAMPLER = "orc.operators.AdaptableOperatorSampler";
+
     public SATreeOperatorStrategy() {
     }
 
+    /**
+     * @param generatorClass  the class of the generator of a tree
+     * @return true if the generator is, or extends, one of the generators of sampled-ancestor trees,
+     *         i.e. SimFBDAge, FossilBirthDeathTree or SimFossilsPoisson.
+     *         The result is cached per class, so the check is O(1) after the first tree.
+     */
+    public static boolean isSATreeGenerator(Class<?> generatorClass) {
+        return IS_SA_TREE_GENERATOR.get(generatorClass);
+    }
+
     @Override
     public boolean applyStrategyToTree(Tree tree, BEASTContext context) {
-        Map<BEASTInterface, GraphicalModelNode<?>> BEASTToLPHYMap = context.getBEASTToLPHYMap();
-        GraphicalModelNode<TimeTree> graphicalModelNode = (GraphicalModelNode<TimeTree>) BEASTToLPHYMap.get(tree);
-        if (graphicalModelNode instanceof Value<TimeTree> timeTreeValue)
-            return timeTreeValue.getGenerator() instanceof SimFBDAge ||  // simFBDAge.lphy
-                    timeTreeValue.getGenerator() instanceof FossilBirthDeathTree ||  // simFossilsCompact.lphy
-                    timeTreeValue.getGenerator() instanceof SimFossilsPoisson;   // simFossils.lphy
-        else
-            throw new IllegalArgumentException("BEAST tree " + tree + " must map to Value<TimeTree> !");
+        // not a tree converted from LPhy, or not a sampled-ancestor tree, then leave it to other strategies
+        if (context.getBEASTToLPHYMap().get(tree) instanceof Value<?> timeTreeValue &&
+                timeTreeValue.getGenerator() != null)
+            return isSATreeGenerator(timeTreeValue.getGenerator().getClass());
+        return false;
     }
 
     @Override
     public List<Operator> createTreeOperators(Tree tree, BEASTContext context) {
+        try (ConversionInstrument.Measurement measurement =
+                     ConversionInstrument.start(this, ConversionInstrument.CREATE_TREE_OPERATORS, context)) {
+            List<Operator> operators = createSATreeOperators(tree, context);
+            // some operators are returned, rather than added into BEASTContext
+            measurement.setOperatorCount(operators.size());
+            return operators;
+        }
+    }
+
+    private List<Operator> createSATreeOperators(Tree tree, BEASTContext context) {
         List<Operator> operators = new ArrayList<>();
 
         operators.add(TreeOperatorStrategy.createTreeScaleOperator(tree, context));
         operators.add(TreeOperatorStrategy.createRootHeightOperator(tree, context));
-        operators.add(TreeOperatorStrategy.createExchangeOperator(tree, context, true));
-        operators.add(TreeOperatorStrategy.createExchangeOperator(tree, context, false));
-        operators.add(TreeOperatorStrategy.createTreeUniformOperator(tree, context));
+
+        // topology and node-height moves
+        List<Operator> moves = new ArrayList<>();
+        moves.add(TreeOperatorStrategy.createExchangeOperator(tree, context, true));
+        moves.add(TreeOperatorStrategy.createExchangeOperator(tree, context, false));
+        moves.add(TreeOperatorStrategy.createTreeUniformOperator(tree, context));
         //https://github.com/CompEvol/sampled-ancestors/blob/master/examples/fossil.xml
-        operators.add(TreeOperatorStrategy.createWilsonBaldingOperator(tree, context));
-        operators.add(createLeafToSampledAncestorJumpOperator(tree, context));
+        moves.add(TreeOperatorStrategy.createWilsonBaldingOperator(tree, context));
+        moves.add(createLeafToSampledAncestorJumpOperator(tree, context));
+
+        SAOptions options = SAOptions.fromSystemProperties();
+        if (options.getOperatorWeights() == SAOptions.OperatorWeights.ADAPTIVE)
+            SAOperatorWeights.reweight(moves, tree);
+
+        if (options.getOperatorMode() == SAOptions.OperatorMode.ADAPTABLE)
+            operators.add(createAdaptableOperatorSampler(moves, tree, context));
+        else
+            operators.addAll(moves);
         return operators;
     }
 
@@ -67,6 +116,39 @@ public class SATreeOperatorStrategy implements TreeOperatorStrategy {
     }
 
 
+    /**
+     * Wrap the moves into ORC's AdaptableOperatorSampler, which learns which move
+     * changes the tree most per unit of time, and proposes it more often.
+     * SA package has no Bactrian-kernel tree operators, so this is the adaptive option
+     * for sampled-ancestor trees. The sampler takes the sum of the weights of the moves.
+     * The class is loaded by name, so the conversion does not depend on ORC,
+     * but BEAST requires ORC to run the XML.
+     */
+    private Operator createAdaptableOperatorSampler(List<Operator> moves, Tree tree, BEASTContext context) {
+        Operator sampler;
+        try {
+            sampler = (Operator) BEASTClassLoader.forName(ADAPTABLE_OPERATOR_SAMPLER)
+                    .getDeclaredConstructor().newInstance();
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalArgumentException("Cannot create " + ADAPTABLE_OPERATOR_SAMPLER +
+                    ", please install ORC package, or use -D" + SAOptions.PREFIX + SAOptions.OPERATOR_MODE +
+                    "=classic !", e);
+        }
+        double weight = 0;
+        for (Operator move : moves) {
+            weight += move.getWeight();
+            // the moves are the inputs of the sampler, not the operators of MCMC
+            context.getElements().remove(move);
+        }
+        sampler.setInputValue("tree", tree);
+        sampler.setInputValue("operator", moves);
+        sampler.setInputValue("weight", weight);
+        sampler.initAndValidate();
+        sampler.setID(tree.getID() + "." + "AdaptableOperatorSampler");
+        context.getElements().put(sampler, null);
+        return sampler;
+    }
+
     @Override
     public Operator getScaleOperator() {
         return new SAScaleOperator();
@@ -2,20 +2,22 @@ package sa.lphybeast.spi;
 
 import beast.base.evolution.datatype.DataType;
 import jebl.evolution.sequences.SequenceType;
+import lphy.base.evolution.alignment.Alignment;
+import lphy.base.evolution.likelihood.PhyloCTMC;
 import lphy.core.model.Generator;
+import lphy.core.model.Value;
 import lphybeast.GeneratorToBEAST;
 import lphybeast.ValueToBEAST;
 import lphybeast.spi.LPhyBEASTExt;
 import lphybeast.tobeast.operators.TreeOperatorStrategy;
 import sa.lphybeast.operators.SATreeOperatorStrategy;
+import sa.lphybeast.tobeast.SAOptions;
 import sa.lphybeast.tobeast.generators.FossilBirthDeathTreeToBEAST;
 import sa.lphybeast.tobeast.generators.SimFBDAgeToBEAST;
+import sa.lphybeast.tobeast.generators.SimFossilsPoissonToBEAST;
 
-import java.util.ArrayList;
-import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * The "Container" provider class of SPI
@@ -26,35 +28,67 @@ import java.util.concurrent.ConcurrentHashMap;
  */
 public class SALBImpl implements LPhyBEASTExt {
 
+    private static final List<Class<? extends ValueToBEAST>> VALUES_TO_BEASTS = List.of();
+
+    private static final List<Class<? extends GeneratorToBEAST>> GENERATOR_TO_BEASTS = List.of(
+            FossilBirthDeathTreeToBEAST.class, SimFBDAgeToBEAST.class,
+            SimFossilsPoissonToBEAST.class );
+
+    private static final SATreeOperatorStrategy TREE_OPERATOR_STRATEGY = new SATreeOperatorStrategy();
+
+    // sample from the prior, so skip the likelihood of alignments
+    private static final List<Class<? extends Generator>> EXCLUDED_GENERATORS_PRIOR = List.of(PhyloCTMC.class);
+    private static final List<Class> EXCLUDED_VALUE_TYPES_PRIOR = List.of(Alignment.class);
+
+    private final List<Class<? extends Generator>> excludedGenerators;
+    private final List<Class> excludedValueTypes;
+
+    /**
+     * The option {@link SAOptions#SAMPLE_PRIOR} is read once here, when LPhyBEAST loads the extension,
+     * so the exclusions stay the same for the whole conversion.
+     */
+    public SALBImpl() {
+        boolean samplePrior = SAOptions.fromSystemProperties().isSamplePrior();
+        excludedGenerators = samplePrior ? EXCLUDED_GENERATORS_PRIOR : List.of();
+        excludedValueTypes = samplePrior ? EXCLUDED_VALUE_TYPES_PRIOR : List.of();
+    }
+
     @Override
     public List<Class<? extends ValueToBEAST>> getValuesToBEASTs() {
-        return new ArrayList<>();
+        return VALUES_TO_BEASTS;
     }
 
     @Override
     public List<Class<? extends GeneratorToBEAST>> getGeneratorToBEASTs() {
-        return Arrays.asList( FossilBirthDeathTreeToBEAST.class, SimFBDAgeToBEAST.class );
+        return GENERATOR_TO_BEASTS;
     }
 
     @Override
     public Map<SequenceType, DataType> getDataTypeMap() {
-        return new ConcurrentHashMap<>();
+        return Map.of();
     }
 
     @Override
     public List<Class<? extends Generator>> getExcludedGenerator() {
-        return new ArrayList<>();
+        return excludedGenerators;
     }
 
     @Override
     public List<Class> getExcludedValueType() {
         // For a complex logic, or arrays, use isExcludedValue
-        return new ArrayList<>();
+        return excludedValueTypes;
+    }
+
+    @Override
+    public boolean isExcludedValue(Value value) {
+        // the birth-death tree fossilised by SimFossilsPoisson
+        return SimFossilsPoissonToBEAST.isFossilisedTree(value);
     }
 
     @Override
     public TreeOperatorStrategy getTreeOperatorStrategy() {
-        return new SATreeOperatorStrategy();
+        // stateless, so it is shared
+        return TREE_OPERATOR_STRATEGY;
     }
 
 }
@@ -0,0 +1,141 @@
+package sa.lphybeast.tobeast;
+
+import java.util.Arrays;
+import java.util.Locale;
+
+/**
+ * The options of the sampled-ancestor conversion,
+ * given by the system properties, e.g. -Dlphybeast.sa.originInit=ntaxa, when running LPhyBEAST:
+ * <ul>
+ *     <li>lphybeast.sa.originInit : how to initialise the origin,
+ *     "margin" (the default) is the root height plus a bounded margin derived from the branch lengths,
+ *     "ntaxa" is the old hack which adds the number of taxa to the origin age.</li>
+ *     <li>lphybeast.sa.operatorWeights : "default" (the default) uses the core operator weights,
+ *     "adaptive" scales the weights of sampled-ancestor operators by the number of fossils,
+ *     see {@link sa.lphybeast.operators.SAOperatorWeights}.</li>
+ *     <li>lphybeast.sa.operatorMode : "classic" (the default) adds every sampled-ancestor tree operator to MCMC,
+ *     "adaptable" wraps the topology and node-height moves into ORC's AdaptableOperatorSampler,
+ *     which requires the ORC package when running BEAST.</li>
+ *     <li>lphybeast.sa.removalProbability : the probability that a sampled lineage is removed,
+ *     which the LPhy generators do not have, the default is 0, which allows sampled ancestors.</li>
+ *     <li>lphybeast.sa.samplePrior : sample from the sampled-ancestor prior only, the default is false.
+ *     The tree is added into the state, and alignments and their likelihoods are not converted.
+ *     It is read once when LPhyBEAST loads the SA extension, so it must be given before the conversion starts,
+ *     and changing the system property afterwards has no effect until the extensions are loaded again.</li>
+ * </ul>
+ */
+public class SAOptions {
+
+    public static final String PREFIX = "lphybeast.sa.";
+    public static final String ORIGIN_INIT = "originInit";
+    public static final String OPERATOR_WEIGHTS = "operatorWeights";
+    public static final String OPERATOR_MODE = "operatorMode";
+    public static final String REMOVAL_PROBABILITY = "removalProbability";
+    public static final String SAMPLE_PRIOR = "samplePrior";
+
+    public enum OriginInit {
+        MARGIN, NTAXA
+    }
+
+    public enum OperatorWeights {
+        DEFAULT, ADAPTIVE
+    }
+
+    public enum OperatorMode {
+        CLASSIC, ADAPTABLE
+    }
+
+    private OriginInit originInit = OriginInit.MARGIN;
+    private OperatorWeights operatorWeights = OperatorWeights.DEFAULT;
+    private OperatorMode operatorMode = OperatorMode.CLASSIC;
+    private double removalProbability = 0.0;
+    private boolean samplePrior = false;
+
+    public SAOptions() { }
+
+    /**
+     * @return the options from the system properties, which is validated.
+     */
+    public static SAOptions fromSystemProperties() {
+        SAOptions options = new SAOptions();
+        options.originInit = getEnum(ORIGIN_INIT, OriginInit.class, options.originInit);
+        options.operatorWeights = getEnum(OPERATOR_WEIGHTS, OperatorWeights.class, options.operatorWeights);
+        options.operatorMode = getEnum(OPERATOR_MODE, OperatorMode.class, options.operatorMode);
+        String removalProbability = System.getProperty(PREFIX + REMOVAL_PROBABILITY);
+        if (removalProbability != null) {
+            try {
+                options.removalProbability = Double.parseDouble(removalProbability.trim());
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Invalid SA option " + PREFIX + REMOVAL_PROBABILITY +
+                        " = " + removalProbability, e);
+            }
+        }
+        String samplePrior = System.getProperty(PREFIX + SAMPLE_PRIOR);
+        if (samplePrior != null)
+            options.samplePrior = Boolean.parseBoolean(samplePrior.trim());
+        options.validate();
+        return options;
+    }
+
+    /**
+     * @throws IllegalArgumentException if any option is invalid.
+     */
+    public void validate() {
+        if (!(removalProbability >= 0 && removalProbability <= 1))
+            throw new IllegalArgumentException("SA " + REMOVAL_PROBABILITY + " must be in [0, 1], but it is " +
+                    removalProbability + " !");
+    }
+
+    private static <E extends Enum<E>> E getEnum(String name, Class<E> enumClass, E defaultValue) {
+        String value = System.getProperty(PREFIX + name);
+        if (value == null)
+            return defaultValue;
+        try {
+            return Enum.valueOf(enumClass, value.trim().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Invalid SA option " + PREFIX + name + " = " + value +
+                    ", which must be one of " + Arrays.toString(enumClass.getEnumConstants()) + " !", e);
+        }
+    }
+
+    public OriginInit getOriginInit() {
+        return originInit;
+    }
+
+    public void setOriginInit(OriginInit originInit) {
+        this.originInit = originInit;
+    }
+
+    public OperatorWeights getOperatorWeights() {
+        return operatorWeights;
+    }
+
+    public void setOperatorWeights(OperatorWeights operatorWeights) {
+        this.operatorWeights = operatorWeights;
+    }
+
+    public OperatorMode getOperatorMode() {
+        return operatorMode;
+    }
+
+    public void setOperatorMode(OperatorMode operatorMode) {
+        this.operatorMode = operatorMode;
+    }
+
+    public double getRemovalProbability() {
+        return removalProbability;
+    }
+
+    public void setRemovalProbability(double removalProbability) {
+        this.removalProbability = removalProbability;
+    }
+
+    public boolean isSamplePrior() {
+        return samplePrior;
+    }
+
+    public void setSamplePrior(boolean samplePrior) {
+        this.samplePrior = samplePrior;
+    }
+
+}
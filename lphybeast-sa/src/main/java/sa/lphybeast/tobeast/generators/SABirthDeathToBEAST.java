@@ -0,0 +1,124 @@
+package sa.lphybeast.tobeast.generators;
+
+import beast.base.core.BEASTInterface;
+import beast.base.evolution.tree.Tree;
+import beast.base.inference.parameter.RealParameter;
+import lphy.base.evolution.tree.TimeTree;
+import lphy.core.model.Generator;
+import lphy.core.model.Value;
+import lphybeast.BEASTContext;
+import lphybeast.GeneratorToBEAST;
+import lphybeast.ext.instrument.ConversionInstrument;
+import sa.evolution.speciation.SABirthDeathModel;
+import sa.evolution.tree.SampledAncestorLogger;
+import sa.lphybeast.tobeast.SAOptions;
+
+
+/**
+ * The common conversion of fossilized birth-death generators into {@link SABirthDeathModel},
+ * where the origin is created once per tree by {@link SATreeOrigin}.
+ * If the origin is not required and the tree has no origin node, the model is conditioned on the root.
+ * The subclass only needs to provide the rates of its generator.
+ */
+public abstract class SABirthDeathToBEAST<G extends Generator> implements GeneratorToBEAST<G, SABirthDeathModel> {
+
+    public static final String suffix = SATreeOrigin.ORIGIN_SUFFIX;
+    public static final String SAMPLED_ANCESTORS_SUFFIX = ".sampledAncestors";
+
+    protected abstract Value getBirthRate(G generator);
+
+    protected abstract Value getDeathRate(G generator);
+
+    protected abstract Value getRho(G generator);
+
+    /**
+     * @return the fossil sampling rate
+     */
+    protected abstract Value getPsi(G generator);
+
+    /**
+     * @return the removal probability given by {@link SAOptions}, where 0 allows sampled ancestors.
+     *         The LPhy generators of sampled-ancestor trees have no such argument.
+     */
+    protected RealParameter getRemovalProbability(SAOptions options) {
+        return BEASTContext.createRealParameter(options.getRemovalProbability());
+    }
+
+    /**
+     * @return true if the LPhy tree must have an origin node,
+     *         otherwise the model is conditioned on the root, when the tree has no origin.
+     */
+    protected boolean isOriginRequired() {
+        return true;
+    }
+
+    private boolean hasOrigin(BEASTInterface tree, BEASTContext context) {
+        return isOriginRequired() || SATreeOrigin.hasOriginNode((Value<TimeTree>) context.getGraphicalModelNode(tree));
+    }
+
+    @Override
+    public SABirthDeathModel generatorToBEAST(G generator, BEASTInterface tree, BEASTContext context) {
+        try (ConversionInstrument.Measurement measurement =
+                     ConversionInstrument.start(this, ConversionInstrument.GENERATOR_TO_BEAST, context)) {
+            return createSABirthDeathModel(generator, tree, context);
+        }
+    }
+
+    private SABirthDeathModel createSABirthDeathModel(G generator, BEASTInterface tree, BEASTContext context) {
+        // read once per conversion of the tree
+        SAOptions options = SAOptions.fromSystemProperties();
+
+        SABirthDeathModel saBirthDeathModel = new SABirthDeathModel();
+        if (hasOrigin(tree, context)) {
+            // the origin is validated and added into the state once per tree
+            SATreeOrigin treeOrigin = SATreeOrigin.of(tree, context);
+            saBirthDeathModel.setInputValue("origin", treeOrigin.getOriginParameter());
+        } else {
+            saBirthDeathModel.setInputValue("conditionOnRoot", true);
+        }
+
+        saBirthDeathModel.setInputValue("birthRate", context.getAsRealParameter(getBirthRate(generator)));
+        saBirthDeathModel.setInputValue("deathRate", context.getAsRealParameter(getDeathRate(generator)));
+        saBirthDeathModel.setInputValue("rho", context.getAsRealParameter(getRho(generator)));
+        saBirthDeathModel.setInputValue("samplingRate", context.getAsRealParameter(getPsi(generator)));
+        saBirthDeathModel.setInputValue("removalProbability", getRemovalProbability(options));
+        saBirthDeathModel.setInputValue("tree", tree);
+        saBirthDeathModel.setInputValue("conditionOnSampling", true);
+        saBirthDeathModel.initAndValidate();
+
+        if (options.isSamplePrior()) {
+            // no alignment to add the tree into the state
+            context.addStateNode((Tree) tree, context.getGraphicalModelNode(tree), true);
+        }
+        context.addExtraLoggable(createSampledAncestorLogger((Tree) tree));
+
+        return saBirthDeathModel;
+    }
+
+    /**
+     * @return the loggable of the number of sampled ancestors, which replaces
+     *         the deterministic function "directAncestorCount()" in LPhy.
+     */
+    protected SampledAncestorLogger createSampledAncestorLogger(Tree tree) {
+        SampledAncestorLogger sampledAncestorLogger = new SampledAncestorLogger();
+        sampledAncestorLogger.setInputValue("tree", tree);
+        sampledAncestorLogger.initAndValidate();
+        sampledAncestorLogger.setID(tree.getID() + SAMPLED_ANCESTORS_SUFFIX);
+        return sampledAncestorLogger;
+    }
+
+    @Override
+    public void modifyBEASTValues(G generator, BEASTInterface tree, BEASTContext context) {
+        try (ConversionInstrument.Measurement measurement =
+                     ConversionInstrument.start(this, ConversionInstrument.MODIFY_BEAST_VALUES, context)) {
+            // create the origin parameter once per tree
+            if (hasOrigin(tree, context))
+                SATreeOrigin.of(tree, context);
+        }
+    }
+
+    @Override
+    public Class<SABirthDeathModel> getBEASTClass() {
+        return SABirthDeathModel.class;
+    }
+}
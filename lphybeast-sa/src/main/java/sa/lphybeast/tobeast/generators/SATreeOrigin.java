@@ -0,0 +1,150 @@
+package sa.lphybeast.tobeast.generators;
+
+import beast.base.core.BEASTInterface;
+import beast.base.evolution.tree.Node;
+import beast.base.evolution.tree.Tree;
+import beast.base.inference.parameter.RealParameter;
+import lphy.base.evolution.tree.TimeTree;
+import lphy.base.evolution.tree.TimeTreeNode;
+import lphy.core.model.Value;
+import lphybeast.BEASTContext;
+import sa.lphybeast.tobeast.SAOptions;
+
+import java.util.*;
+
+/**
+ * The origin of a sampled-ancestor tree, which is computed once per tree in a conversion,
+ * and shared by all sampled-ancestor converters through {@link #of(BEASTInterface, BEASTContext)}.
+ * It keeps the direct handle to the origin parameter, so that
+ * the origin is not looked up from {@link BEASTContext} by its ID.
+ * The instances are cached per {@link BEASTContext}, and released together with it.
+ * <p>
+ * The origin starts from the LPhy origin age, but it is at least the root height plus a margin,
+ * which is the mean branch length bounded between {@link #MIN_MARGIN_RATIO} and {@link #MAX_MARGIN_RATIO}
+ * of the root height. So the MCMC does not start from an origin thousands of time units too old,
+ * and the origin is still older than the initial tree.
+ * The old hack, origin age + the number of taxa, can be chosen by {@link SAOptions}.
+ * The origin is validated against the root height, before it is added into the state,
+ * and neither its value nor the state is changed afterwards.
+ */
+public class SATreeOrigin {
+
+    public static final String ORIGIN_SUFFIX = ".origin";
+    // the bounds of the origin margin relative to the root height
+    public static final double MIN_MARGIN_RATIO = 0.01;
+    public static final double MAX_MARGIN_RATIO = 0.5;
+
+    // BEASTContext -> BEAST tree -> origin
+    private static final Map<BEASTContext, Map<BEASTInterface, SATreeOrigin>> origins =
+            Collections.synchronizedMap(new WeakHashMap<>());
+
+    private final Value<TimeTree> timeTree;
+    // the age of the origin node in LPhy tree
+    private final double originAge;
+    private final RealParameter originParameter;
+
+    private SATreeOrigin(BEASTInterface tree, BEASTContext context) {
+        timeTree = (Value<TimeTree>) context.getGraphicalModelNode(tree);
+        if (!hasOriginNode(timeTree)) {
+            throw new IllegalArgumentException("Expecting a lphy.evolution.tree.TimeTree with an origin node!");
+        }
+        originAge = timeTree.value().getRoot().getAge();
+        Tree beastTree = (Tree) tree;
+        double rootHeight = getRootHeight(beastTree);
+        double margin = getOriginMargin(beastTree);
+
+        double origin = switch (SAOptions.fromSystemProperties().getOriginInit()) {
+            // hack to ensure that origin is older than the root height for tree initializers like the SBI
+            case NTAXA -> originAge + timeTree.value().getTaxa().ntaxa();
+            // the initial tree is the LPhy tree, so the origin must be older than its root
+            case MARGIN -> Math.max(originAge, rootHeight + margin);
+        };
+        // validate the origin once before it is added into the state
+        if (!(origin > rootHeight))
+            origin = rootHeight + margin;
+
+        // create the origin parameter, and add it into the state only once per tree
+        originParameter = BEASTContext.createRealParameter(tree.getID() + ORIGIN_SUFFIX, origin);
+        context.addStateNode(originParameter, timeTree, true);
+    }
+
+    /**
+     * Create the origin parameter at the first call for the tree, and add it into the state.
+     * @param tree     the BEAST tree
+     * @param context  {@link BEASTContext}
+     * @return the origin of the given tree, which is created only once per tree and context.
+     */
+    public static SATreeOrigin of(BEASTInterface tree, BEASTContext context) {
+        Map<BEASTInterface, SATreeOrigin> treeOrigins = origins.computeIfAbsent(context, c -> new IdentityHashMap<>());
+        synchronized (treeOrigins) {
+            SATreeOrigin treeOrigin = treeOrigins.get(tree);
+            if (treeOrigin == null) {
+                treeOrigin = new SATreeOrigin(tree, context);
+                treeOrigins.put(tree, treeOrigin);
+            }
+            return treeOrigin;
+        }
+    }
+
+    /**
+     * @param timeTree  LPhy tree
+     * @return true if the root of LPhy tree is the origin node, which has only one child.
+     */
+    public static boolean hasOriginNode(Value<TimeTree> timeTree) {
+        TimeTreeNode root = timeTree.value().getRoot();
+        return root.getChildCount() == 1;
+    }
+
+    /**
+     * @return LPhy tree having the origin node
+     */
+    public Value<TimeTree> getTimeTree() {
+        return timeTree;
+    }
+
+    /**
+     * @return the age of the origin node in LPhy tree
+     */
+    public double getOriginAge() {
+        return originAge;
+    }
+
+    public RealParameter getOriginParameter() {
+        return originParameter;
+    }
+
+    /**
+     * @param beastTree  BEAST tree without the origin node
+     * @return the root height of BEAST tree
+     */
+    public static double getRootHeight(Tree beastTree) {
+        if (beastTree.getRoot().getChildCount() == 1) {
+            throw new RuntimeException("BEAST tree should not have origin node!");
+        }
+        return beastTree.getRoot().getHeight();
+    }
+
+    /**
+     * @param beastTree  BEAST tree without the origin node
+     * @return the margin between the root and the origin, which is the mean branch length,
+     *         but bounded by {@link #MIN_MARGIN_RATIO} and {@link #MAX_MARGIN_RATIO} of the root height,
+     *         which is always positive.
+     */
+    public static double getOriginMargin(Tree beastTree) {
+        double rootHeight = getRootHeight(beastTree);
+        Node[] nodes = beastTree.getNodesAsArray();
+        if (nodes.length < 2)
+            return rootHeight > 0 ? MAX_MARGIN_RATIO * rootHeight : 1.0;
+        double totalLength = 0;
+        for (Node node : nodes) {
+            // sampled ancestors have zero-length branches
+            if (!node.isRoot())
+                totalLength += node.getLength();
+        }
+        double meanBranchLength = totalLength / (nodes.length - 1);
+        double margin = Math.min(Math.max(meanBranchLength, MIN_MARGIN_RATIO * rootHeight), MAX_MARGIN_RATIO * rootHeight);
+        // all tips at the root, where the origin still has to be older
+        return margin > 0 ? margin : 1.0;
+    }
+
+}
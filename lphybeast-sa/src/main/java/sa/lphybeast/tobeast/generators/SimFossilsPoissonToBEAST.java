@@ -0,0 +1,96 @@
+package sa.lphybeast.tobeast.generators;
+
+import lphy.base.evolution.birthdeath.SimFossilsPoisson;
+import lphy.base.evolution.tree.TimeTree;
+import lphy.core.model.Generator;
+import lphy.core.model.Value;
+
+import java.util.Map;
+
+/**
+ * SimFossilsPoisson adds fossils sampled by a Poisson process with the rate psi
+ * into a birth-death tree, e.g. simFossils.lphy.
+ * The birth, death and extant sampling rates are taken from the generator of that tree,
+ * and a tree generator missing any of them is not supported.
+ * If the tree has no origin node, {@link sa.evolution.speciation.SABirthDeathModel}
+ * is conditioned on the root.
+ * The input birth-death tree is excluded by {@link #isFossilisedTree(Value)},
+ * so that its rates only have the prior of the fossil tree.
+ */
+public class SimFossilsPoissonToBEAST extends SABirthDeathToBEAST<SimFossilsPoisson> {
+
+    public static final String TREE = "tree";
+    public static final String PSI = "psi";
+    // the names of rates in birth-death tree generators
+    public static final String[] BIRTH_RATE = {"lambda", "birthRate"};
+    public static final String[] DEATH_RATE = {"mu", "deathRate"};
+    public static final String[] RHO = {"rho", "frac"};
+
+    @Override
+    protected boolean isOriginRequired() {
+        return false;
+    }
+
+    @Override
+    protected Value getBirthRate(SimFossilsPoisson generator) {
+        return getTreeGeneratorParam(generator, BIRTH_RATE, "birth rate");
+    }
+
+    @Override
+    protected Value getDeathRate(SimFossilsPoisson generator) {
+        return getTreeGeneratorParam(generator, DEATH_RATE, "death rate");
+    }
+
+    @Override
+    protected Value getRho(SimFossilsPoisson generator) {
+        return getTreeGeneratorParam(generator, RHO, "extant sampling probability");
+    }
+
+    @Override
+    protected Value getPsi(SimFossilsPoisson generator) {
+        Value psi = generator.getParams().get(PSI);
+        if (psi == null)
+            throw new IllegalArgumentException("SimFossilsPoisson requires the fossil sampling rate " + PSI + " !");
+        return psi;
+    }
+
+    /**
+     * @param value  the value in the LPhy model
+     * @return true, if the value is the input tree of SimFossilsPoisson,
+     *         which is replaced by the fossil tree in BEAST XML.
+     */
+    public static boolean isFossilisedTree(Value value) {
+        if (!(value.value() instanceof TimeTree))
+            return false;
+        for (Object output : value.getOutputs()) {
+            if (output instanceof SimFossilsPoisson simFossils && simFossils.getParams().get(TREE) == value)
+                return true;
+        }
+        return false;
+    }
+
+    /**
+     * @throws IllegalArgumentException if the generator of the tree does not have the parameter,
+     *                                  e.g. Yule has no death rate, which is not supported.
+     */
+    private Value getTreeGeneratorParam(SimFossilsPoisson generator, String[] names, String description) {
+        Value<TimeTree> tree = generator.getParams().get(TREE);
+        if (tree == null || tree.getGenerator() == null)
+            throw new IllegalArgumentException("SimFossilsPoisson requires a tree simulated by a birth-death generator !");
+        Generator treeGenerator = tree.getGenerator();
+        Map<String, Value> params = treeGenerator.getParams();
+        for (String name : names) {
+            if (params.get(name) != null)
+                return params.get(name);
+        }
+        throw new IllegalArgumentException("SimFossilsPoisson does not support the tree generated by " +
+                treeGenerator.getClass().getSimpleName() + ", which has no " + description + " " +
+                String.join(" or ", names) + " !");
+    }
+
+    @Override
+    public Class<SimFossilsPoisson> getGeneratorClass() {
+        return SimFossilsPoisson.class;
+    }
+
+}
@@ -0,0 +1,63 @@
+package sa.lphybeast.tobeast.generators;
+
+import lphy.core.io.UserDir;
+import lphybeast.TestUtils;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * The origin of every tree is created and added into the state only once.
+ */
+class SATreeOriginTest {
+
+    private static final int N_TREES = 20;
+
+    private final String manyTrees;
+
+    SATreeOriginTest() {
+        StringBuilder script = new StringBuilder();
+        for (int i = 0; i < N_TREES; i++)
+            script.append("tree").append(i)
+                    .append(" ~ SimFBDAge(lambda=1, mu=0.6, frac=0.3, psi=0.4, originAge=4);\n");
+        manyTrees = script.toString();
+    }
+
+    @BeforeEach
+    public void setUp() {
+        // load ../LPhyBeast/version.xml
+        Path lphybeastDir = Paths.get(UserDir.getUserDir().toAbsolutePath().getParent().toString(),
+                "..","LPhyBeast");
+        if (!Files.exists(lphybeastDir))
+            throw new IllegalArgumentException("Cannot locate LPhyBeast Dir : " + lphybeastDir);
+
+        TestUtils.loadServices(lphybeastDir.toString());
+        // load sa/version.xml
+        Path parentDir = UserDir.getUserDir().toAbsolutePath();
+        TestUtils.loadServices(parentDir.toString());
+    }
+
+    @Test
+    public void testManySimFBDAge() {
+        String xml = TestUtils.lphyScriptToBEASTXML(manyTrees, "manySimFBDAge");
+
+        String state = xml.substring(xml.indexOf("<state"), xml.indexOf("</state>"));
+        for (int i = 0; i < N_TREES; i++) {
+            String originId = "id=\"tree" + i + ".origin\"";
+            assertEquals(1, xml.split(originId, -1).length - 1, "Only 1 origin of tree" + i);
+            assertTrue(state.contains(originId), "Origin of tree" + i + " in state");
+            assertTrue(xml.contains("origin=\"@tree" + i + ".origin\""), "SABirthDeathModel of tree" + i);
+        }
+        assertEquals(N_TREES, state.split("\\.origin\"", -1).length - 1, "Origins in state");
+
+        // 7 tree operators and 1 origin operator per tree
+        assertEquals(8 * N_TREES, xml.split("<operator", -1).length - 1, "operators");
+    }
+
+}
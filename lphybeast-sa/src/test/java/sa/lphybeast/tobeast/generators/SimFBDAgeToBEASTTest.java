@@ -4,6 +4,7 @@ import lphy.core.io.UserDir;
 import lphybeast.TestUtils;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import sa.lphybeast.tobeast.SAOptions;
 
 import java.nio.file.Files;
 import java.nio.file.Path;
@@ -20,7 +21,11 @@ class SimFBDAgeToBEASTTest {
     private String simFBDAge = """
             tree ~ SimFBDAge(lambda=1, mu=0.6, frac=0.3, psi=0.4, originAge=4);
             daCount = tree.directAncestorCount();""";
-    //TODO It requires 2nd cmd to make "tree" added into List<StateNode> state in BEASTContext
+    // -Dlphybeast.sa.samplePrior=true adds "tree" into List<StateNode> state in BEASTContext,
+    // and removes the alignment and its likelihood
+    private String simFBDAgeAlignment = """
+            tree ~ SimFBDAge(lambda=1, mu=0.6, frac=0.3, psi=0.4, originAge=4);
+            D ~ PhyloCTMC(L=50, Q=jukesCantor(), mu=0.01, tree=tree);""";
 
 
     @BeforeEach
@@ -62,6 +67,32 @@ class SimFBDAgeToBEASTTest {
                 xml.contains("sa.evolution.operators.SAWilsonBalding") &&
                 xml.contains("sa.evolution.operators.LeafToSampledAncestorJump"), "SA operators");
 
+        assertTrue(xml.contains("id=\"tree.sampledAncestors\"") &&
+                xml.contains("sa.evolution.tree.SampledAncestorLogger"), "SampledAncestorLogger");
+    }
+
+    @Test
+    public void testSimFBDAgeSamplePrior() {
+        String xml = TestUtils.lphyScriptToBEASTXML(simFBDAgeAlignment, "simFBDAgeAlignment");
+        assertTrue(xml.contains("<data") && xml.contains("TreeLikelihood"), "alignment and likelihood");
+
+        String key = SAOptions.PREFIX + SAOptions.SAMPLE_PRIOR;
+        System.setProperty(key, "true");
+        try {
+            // the option is read when the extension is loaded
+            setUp();
+            xml = TestUtils.lphyScriptToBEASTXML(simFBDAgeAlignment, "simFBDAgePrior");
+
+            String state = xml.substring(xml.indexOf("<state"), xml.indexOf("</state>"));
+            assertTrue(state.contains("id=\"tree\""), "tree in state");
+            assertTrue(state.contains("id=\"tree.origin\""), "origin in state");
+            assertFalse(xml.contains("<data") || xml.contains("id=\"D\""), "No alignment");
+            assertFalse(xml.contains("TreeLikelihood"), "No likelihood");
+
+            assertTrue(xml.contains("sa.evolution.tree.SampledAncestorLogger"), "SampledAncestorLogger");
+        } finally {
+            System.clearProperty(key);
+        }
     }
 
 }
\ No newline at end of file
@@ -0,0 +1,71 @@
+package sa.lphybeast.tobeast.generators;
+
+import lphy.core.io.UserDir;
+import lphybeast.TestUtils;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * SimFossilsPoisson takes the rates from the birth-death tree, and is conditioned on the root.
+ */
+class SimFossilsPoissonToBEASTTest {
+
+    private String simFossils = """
+            lambda ~ Uniform(lower=1.0, upper=1.5);
+            tree ~ BirthDeathSampling(lambda=lambda, mu=0.5, rho=1.0, rootAge=3.0);
+            fossilTree ~ SimFossilsPoisson(tree=tree, psi=1.0);""";
+
+
+    @BeforeEach
+    public void setUp() {
+        // load ../LPhyBeast/version.xml
+        Path lphybeastDir = Paths.get(UserDir.getUserDir().toAbsolutePath().getParent().toString(),
+                "..","LPhyBeast");
+        if (!Files.exists(lphybeastDir))
+            throw new IllegalArgumentException("Cannot locate LPhyBeast Dir : " + lphybeastDir);
+
+        TestUtils.loadServices(lphybeastDir.toString());
+        // load sa/version.xml
+        Path parentDir = UserDir.getUserDir().toAbsolutePath();
+        TestUtils.loadServices(parentDir.toString());
+    }
+
+    @Test
+    public void testSimFossils() {
+        String xml = TestUtils.lphyScriptToBEASTXML(simFossils, "simFossils");
+
+        assertTrue(xml.contains("sa.evolution.speciation.SABirthDeathModel") &&
+                xml.contains("birthRate=\"@lambda\"") && xml.contains("conditionOnRoot=\"true\"") &&
+                xml.contains("conditionOnSampling=\"true\""), "SABirthDeathModel");
+        assertFalse(xml.contains("origin=\"@fossilTree.origin\""), "No origin");
+        // the input birth-death tree and its prior are not converted
+        assertFalse(xml.contains("id=\"tree\"") || xml.contains("BirthDeathGernhard08Model"),
+                "No birth-death tree");
+        assertEquals(1, xml.split("birthRate=\"@lambda\"", -1).length - 1, "lambda in 1 tree prior");
+
+        assertTrue(xml.contains("\"deathRate\">0.5</parameter>") && xml.contains("\"samplingRate\">1.0</parameter>") &&
+                xml.contains("\"removalProbability\">0.0</parameter>") && xml.contains("\"rho\">1.0</parameter>"),
+                "SABirthDeath parameters");
+
+        assertTrue(xml.contains("sa.evolution.operators.SAScaleOperator") &&
+                xml.contains("sa.evolution.operators.LeafToSampledAncestorJump"), "SA operators");
+    }
+
+    @Test
+    public void testUnsupportedTreeGenerator() {
+        // Yule has no death rate or extant sampling probability
+        String yuleFossils = """
+                tree ~ Yule(lambda=1.0, n=10);
+                fossilTree ~ SimFossilsPoisson(tree=tree, psi=1.0);""";
+        Exception e = assertThrows(IllegalArgumentException.class,
+                () -> TestUtils.lphyScriptToBEASTXML(yuleFossils, "yuleFossils"));
+        assertTrue(e.getMessage().contains("Yule"), e.getMessage());
+    }
+
+}